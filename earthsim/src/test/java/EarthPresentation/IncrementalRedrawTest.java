@@ -0,0 +1,188 @@
+package EarthPresentation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import EarthSim.Simulation;
+import EarthSim.SimulationGrid;
+import core.Config;
+import core.Palette;
+import core.SimulationState;
+
+// Frames are only redrawn where their cells or the solar line changed, and
+// the view only repaints the regions it is told changed.  Either going
+// wrong leaves stale pixels behind, so every incremental frame, and every
+// view repainted from dirty regions, is compared with a frame drawn in full.
+public class IncrementalRedrawTest {
+
+	private final Palette palette = Palette.standard();
+	private final Random random = new Random(6310);
+	private PrintStream out;
+
+	@Before
+	public void setUp() {
+		//DisplayModel reports its timing on stdout
+		out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				//discard output from the code under test
+			}
+		}));
+	}
+
+	@After
+	public void tearDown() {
+		System.setOut(out);
+	}
+
+	@Test
+	public void incrementalFramesMatchFullRedraws() {
+		int width = 333;
+		int height = 211;
+		MapCompositor compositor = new MapCompositor(palette);
+		compositor.setBase(randomMap(width, height));
+		//drawn in turn, as the triple buffer hands them out, so each is a few frames behind
+		MapFrame[] frames = newFrames(width, height);
+		int columns = 36;
+		int rows = 18;
+		int cellWidth = 9;
+		int cellHeight = 11;
+		int[] cells = randomCells(columns * rows);
+		int solarX = 100;
+
+		for(int f = 0; f < 60; f++) {
+			String change = "cells";
+			if(f == 20) {
+				compositor.setBase(randomMap(width, height));
+				change = "map";
+			}
+			else if(f == 30) {
+				columns = 72;
+				rows = 36;
+				cellWidth = 4;
+				cellHeight = 5;
+				cells = randomCells(columns * rows);
+				change = "layout";
+			}
+			else if(f == 40) {
+				compositor.setBase(null);
+				change = "no map";
+			}
+			else if(f == 50) {
+				width = 300;
+				height = 150;
+				frames = newFrames(width, height);
+				compositor.setBase(randomMap(width, height));
+				change = "canvas";
+			}
+			else {
+				for(int k = 0; k < 5; k++)
+					cells[random.nextInt(cells.length)] = random.nextInt(palette.size());
+			}
+			//the line moves on most frames, off either edge on some
+			if(f % 4 != 0)
+				solarX = random.nextInt(width + 20) - 10;
+
+			MapFrame frame = frames[f % frames.length];
+			boolean incremental = frame.matches(columns, rows, cellWidth, cellHeight, compositor.getBaseVersion());
+			long written = compositor.draw(frame, cells, columns, rows, cellWidth, cellHeight, solarX);
+			MapFrame full = new MapFrame(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+			compositor.draw(full, cells, columns, rows, cellWidth, cellHeight, solarX);
+			assertArrayEquals("Frame " + f + " after a change of " + change, pixels(full.image), pixels(frame.image));
+			if(incremental)
+				assertTrue("Frame " + f + " redrew " + written + " pixels", written < (long) width * height / 2);
+		}
+	}
+
+	@Test
+	public void viewRepaintedFromDirtyRegionsMatchesFullFrames() {
+		double spacing = 5;
+		Config config = Config.parse(new String[0]);
+		Simulation simulation = new Simulation(config, spacing, 60);
+		int width = 1000;
+		int height = 400;
+		DisplayModel model = new DisplayModel(config, height, width, 1000, true);
+		model.setGridSpacing(spacing);
+		int[] view = null;
+
+		for(int f = 0; f < 30; f++) {
+			simulation.step();
+			if(f == 20) {
+				width = 700;
+				height = 300;
+				model.setSize(new Dimension(width, height));
+			}
+			//the sun stays put on some frames, so only cells change
+			double sunLongitude = f % 5 == 3 ? 0 : f * 7;
+			publish(config, simulation.getGrid(), sunLongitude);
+			model.generateNextImageSet();
+			//the view misses some frames, so it must be told what changed in them too
+			if(f % 3 == 1)
+				continue;
+
+			BufferedImage image = model.getMapImage();
+			List<Rectangle> dirty = model.getMapDirtyRegion();
+			if(view == null || dirty == null || view.length != width * height)
+				view = pixels(image);
+			else {
+				for(Rectangle region : dirty) {
+					for(int y = region.y; y < region.y + region.height; y++)
+						image.getRGB(region.x, y, region.width, 1, view, y * width + region.x, width);
+				}
+			}
+
+			Config fullConfig = Config.parse(new String[0]);
+			DisplayModel fullModel = new DisplayModel(fullConfig, height, width, 1000, true);
+			fullModel.setGridSpacing(spacing);
+			publish(fullConfig, simulation.getGrid(), sunLongitude);
+			fullModel.generateNextImageSet();
+			assertArrayEquals("View after frame " + f, pixels(fullModel.getMapImage()), view);
+		}
+	}
+
+	private void publish(Config config, SimulationGrid grid, double sunLongitude) {
+		SimulationState state = config.claimState();
+		grid.copyTemperatures(state.reuse(grid.mWidth, grid.mHeight, sunLongitude));
+		config.publishState(state);
+	}
+
+	private static MapFrame[] newFrames(int width, int height) {
+		MapFrame[] frames = new MapFrame[3];
+		for(int i = 0; i < frames.length; i++)
+			frames[i] = new MapFrame(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+		return frames;
+	}
+
+	private BufferedImage randomMap(int width, int height) {
+		BufferedImage map = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++)
+				map.setRGB(x, y, 0xff000000 | random.nextInt(0x1000000));
+		}
+		return map;
+	}
+
+	private int[] randomCells(int count) {
+		int[] cells = new int[count];
+		for(int i = 0; i < count; i++)
+			cells[i] = random.nextInt(palette.size());
+		return cells;
+	}
+
+	private static int[] pixels(BufferedImage image) {
+		return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+	}
+}
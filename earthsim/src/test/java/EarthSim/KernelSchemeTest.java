@@ -0,0 +1,154 @@
+package EarthSim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import core.Constants;
+import core.DataCell;
+import core.KernelEnum;
+import core.PrecisionEnum;
+
+/*
+ * Checks each kernel against the scheme it implements.  The sequential
+ * kernel is the original model, so it is checked against the original
+ * DataCell grid, which heated every cell and then convected the cells in
+ * place column by column.  The fused and vector kernels implement the
+ * standard kernel's two-plane scheme, reading every neighbor as it was
+ * before the step, so they are checked against the standard kernel.
+ */
+public class KernelSchemeTest {
+
+	/* Largest difference allowed from the original model, relative to the
+	 * temperature.  The stencil weights and radiation tables are computed
+	 * once per row rather than per cell, so they round differently. */
+	private static final double ORIGINAL_TOLERANCE = 1e-7;
+
+	@Test
+	public void sequentialMatchesOriginalModel() {
+		assertMatchesOriginal(15, 1440);
+		assertMatchesOriginal(5, 1440);
+		assertMatchesOriginal(1, 120);
+	}
+
+	@Test
+	public void fusedMatchesStandard() {
+		assertMatchesStandard(KernelEnum.FUSED);
+	}
+
+	/* Only runs when built with -P vector, which adds the kernel and the
+	 * jdk.incubator.vector module; otherwise -k vector is the standard
+	 * kernel. */
+	@Test
+	public void vectorMatchesStandard() {
+		assumeTrue(SimulationGrid.isVectorAvailable());
+		assertMatchesStandard(KernelEnum.VECTOR);
+	}
+
+	/* Step the sequential kernel and the original model side by side and
+	 * compare every cell. */
+	private static void assertMatchesOriginal(int spacing, int steps) {
+		SimulationGrid grid = new SimulationGrid(spacing);
+		StepEngine engine = new StepEngine(1, KernelEnum.SEQUENTIAL);
+		OriginalGrid original = new OriginalGrid(spacing);
+		assertEquals(original.mWidth, grid.mWidth);
+		assertEquals(original.mHeight, grid.mHeight);
+
+		int runningTime = 0;
+		for (int step = 0; step < steps; step++) {
+			double sunLongitude = 180 - ((runningTime + 720) % 1440) * 360 / 1440;
+			engine.step(grid, sunLongitude);
+			original.step(sunLongitude);
+			runningTime++;
+		}
+
+		double worst = 0;
+		for (int x = 0; x < grid.mWidth; x++) {
+			for (int y = 0; y < grid.mHeight; y++) {
+				double expected = original.mCells[x][y].getTemperature();
+				worst = Math.max(worst, Math.abs(grid.getTemperature(x, y) - expected) / Math.abs(expected));
+			}
+		}
+		assertTrue("Off from the original model by " + worst + " relative at spacing " + spacing,
+				worst <= ORIGINAL_TOLERANCE);
+	}
+
+	/* A kernel must give the standard kernel's temperatures bit for bit. */
+	static void assertMatchesStandard(KernelEnum kernel) {
+		for (double spacing : ParallelStepTest.SLIDER_SPACINGS) {
+			for (PrecisionEnum precision : PrecisionEnum.values()) {
+				SimulationGrid standard = ParallelStepTest.run(new SimulationGrid(spacing, precision),
+						new StepEngine(1, KernelEnum.STANDARD), 3);
+				SimulationGrid grid = ParallelStepTest.run(new SimulationGrid(spacing, precision),
+						new StepEngine(1, kernel), 3);
+				assertEquals("Cells differing from the standard kernel at spacing " + spacing + ", " + precision,
+						0, ParallelStepTest.countDifferent(standard, grid));
+			}
+		}
+	}
+
+	/*
+	 * The grid as it was before the temperatures moved into flat planes:
+	 * a DataCell per cell, heated from the per-cell formula, then
+	 * convected in place reading neighbors already updated in the sweep.
+	 */
+	private static class OriginalGrid {
+		final int mSpacing;
+		final int mWidth;
+		final int mHeight;
+		final DataCell[][] mCells;
+
+		OriginalGrid(int spacing) {
+			mSpacing = spacing;
+			mWidth = 360 / spacing;
+			mHeight = 180 / spacing;
+			mCells = new DataCell[mWidth][mHeight];
+			for (int x = 0; x < mWidth; x++) {
+				double longitude = x < mWidth / 2 ? -1f * (x + 1) * mSpacing : 360f - (x + 1) * mSpacing;
+				for (int y = 0; y < mHeight; y++) {
+					mCells[x][y] = new DataCell(
+							(y - (mHeight / 2f)) * mSpacing,
+							longitude,
+							mSpacing,
+							Constants.AVERAGE_EARTH_TEMPERATURE);
+				}
+			}
+		}
+
+		void step(double sunLongitude) {
+			for (int x = 0; x < mWidth; x++) {
+				for (int y = 0; y < mHeight; y++) {
+					DataCell cell = mCells[x][y];
+					double beta = cell.getArea() / Constants.EARTH_SURFACE_AREA;
+					double attenuation = 0;
+					double d = Math.abs(cell.getLongitude() - sunLongitude);
+					if (Math.signum(cell.getLongitude()) != Math.signum(sunLongitude))
+						d = 360 - d;
+					if (d < 90)
+						attenuation = Math.cos(Math.toRadians(d)) * Math.cos(Math.toRadians(cell.getLatitude()));
+					double Th = Constants.AVERAGE_EARTH_TEMPERATURE * beta * 2 * 8 * attenuation;
+					double Tc = beta * Constants.AVERAGE_EARTH_TEMPERATURE;
+					cell.setTemperature(cell.getTemperature() + Th - Tc);
+				}
+			}
+
+			for (int x = 0; x < mWidth; x++) {
+				for (int y = 0; y < mHeight; y++) {
+					DataCell cell = mCells[x][y];
+					DataCell north = y < mHeight - 1 ? mCells[x][y + 1] : mCells[(x + mWidth / 2) % mWidth][y];
+					DataCell south = y > 0 ? mCells[x][y - 1] : mCells[(x + mWidth / 2) % mWidth][y];
+					DataCell east = mCells[(x + 1) % mWidth][y];
+					DataCell west = mCells[(x - 1 + mWidth) % mWidth][y];
+					cell.setTemperature(
+							(cell.getUpperWidth() * north.getTemperature() / north.getArea()
+							+ cell.getLowerWidth() * south.getTemperature() / south.getArea()
+							+ cell.getHeight() * east.getTemperature() / east.getArea()
+							+ cell.getHeight() * west.getTemperature() / west.getArea())
+							/ cell.getPerimeter() * cell.getArea());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package EarthSim;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import core.KernelEnum;
+import core.PrecisionEnum;
+
+/*
+ * Splitting a step into parallel bands must not change the results: for
+ * every spacing on the GUI's slider, both precisions and every kernel, a
+ * grid stepped by StepEngine(1) must match grids stepped with each
+ * parallelism bit for bit.
+ */
+public class ParallelStepTest {
+
+	/* The spacings the GUI's grid spacing slider offers. */
+	static final double[] SLIDER_SPACINGS = new double[] {
+		0.1, 0.25, 0.5, 1, 2, 3, 4, 5, 6, 9, 10, 12, 15, 18, 20, 30, 36, 45, 60, 90, 180
+	};
+
+	/* Parallelism compared against the serial engine, including counts
+	 * that do not divide the number of rows evenly. */
+	private static final int[] PARALLELISM = new int[] {3, 4, 7, 32};
+
+	/* Minutes between steps, chosen so the sun lands on a different
+	 * column every step. */
+	static final int TIMESTEP = 97;
+
+	private static final int STEPS = 3;
+
+	@Test
+	public void parallelStepsMatchSerialSteps() {
+		for (double spacing : SLIDER_SPACINGS) {
+			for (PrecisionEnum precision : PrecisionEnum.values()) {
+				for (KernelEnum kernel : KernelEnum.values()) {
+					SimulationGrid reference = run(new SimulationGrid(spacing, precision),
+							new StepEngine(1, kernel), STEPS);
+					for (int parallelism : PARALLELISM) {
+						SimulationGrid grid = run(new SimulationGrid(spacing, precision),
+								new StepEngine(parallelism, kernel), STEPS);
+						assertEquals("Cells differing at spacing " + spacing + ", " + precision + ", "
+								+ kernel + ", parallelism " + parallelism,
+								0, countDifferent(reference, grid));
+					}
+				}
+			}
+		}
+	}
+
+	/* Step a grid with the sun moving TIMESTEP minutes each step. */
+	static SimulationGrid run(SimulationGrid grid, StepEngine engine, int steps) {
+		int runningTime = 0;
+		for (int step = 0; step < steps; step++) {
+			double sunLongitude = 180 - ((runningTime + 720) % 1440) * 360 / 1440;
+			engine.step(grid, sunLongitude);
+			runningTime += TIMESTEP;
+		}
+		return grid;
+	}
+
+	/* Number of cells whose temperatures are not bit for bit identical. */
+	static long countDifferent(SimulationGrid a, SimulationGrid b) {
+		long different = 0;
+		for (int y = 0; y < a.mHeight; y++) {
+			for (int x = 0; x < a.mWidth; x++) {
+				if (Double.doubleToRawLongBits(a.getTemperature(x, y)) != Double.doubleToRawLongBits(b.getTemperature(x, y)))
+					different++;
+			}
+		}
+		return different;
+	}
+}
@@ -0,0 +1,76 @@
+package EarthSim;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import core.Constants;
+import core.DataCell;
+
+/*
+ * The radiation computed from the separable attenuation tables must match
+ * the per-cell formula it replaced, which built a DataCell and took both
+ * cosines for every cell.  Each grid is heated once from a uniform
+ * temperature for a range of sun longitudes, including ones between whole
+ * degrees and columns.
+ */
+public class RadiationTableTest {
+
+	/* Largest difference allowed from the per-cell formula, in Kelvin. */
+	private static final double TOLERANCE = 1e-9;
+
+	private static final double[] SUN_LONGITUDES = new double[] {
+		-180, -123.456, -90, -45.5, -0.25, 0, 0.25, 37.5, 89.999, 90, 135.75, 179.9, 180
+	};
+
+	@Test
+	public void tablesMatchPerCellFormula() {
+		for (double spacing : ParallelStepTest.SLIDER_SPACINGS) {
+			for (double sunLongitude : SUN_LONGITUDES) {
+				SimulationGrid grid = new SimulationGrid(spacing);
+				grid.calculateRadiantTemperatures(sunLongitude);
+				double diff = compare(grid, spacing, sunLongitude);
+				assertTrue("Off by " + diff + " K at spacing " + spacing + ", sun " + sunLongitude,
+						diff <= TOLERANCE);
+			}
+		}
+	}
+
+	/* The largest difference between the grid's temperatures and the
+	 * per-cell formula applied to a uniform grid, in Kelvin. */
+	private static double compare(SimulationGrid grid, double spacing, double sunLongitude) {
+		double max = 0;
+		for (int y = 0; y < grid.mHeight; y++) {
+			for (int x = 0; x < grid.mWidth; x++) {
+				DataCell cell = new DataCell(
+						grid.cellIndexToLatitude(y),
+						grid.cellIndexToLongitude(x),
+						spacing,
+						Constants.AVERAGE_EARTH_TEMPERATURE);
+				double expected = radiate(cell, sunLongitude);
+				max = Math.max(max, Math.abs(expected - grid.getTemperature(x, y)));
+			}
+		}
+		return max;
+	}
+
+	/* The per-cell radiation from before the attenuation tables. */
+	private static double radiate(DataCell cell, double sunLongitude) {
+		double beta = cell.getArea() / Constants.EARTH_SURFACE_AREA;
+		double attenuation = calculateAttenuation(cell.getLatitude(), cell.getLongitude(), sunLongitude);
+		double Th = Constants.AVERAGE_EARTH_TEMPERATURE * beta * 2 * 8 * attenuation;
+		double Tc = beta * Constants.AVERAGE_EARTH_TEMPERATURE;
+		return cell.getTemperature() + Th - Tc;
+	}
+
+	private static double calculateAttenuation(double lat, double lon, double sunLon) {
+		double attn = 0;
+		double d = Math.abs(lon - sunLon);
+		if (Math.signum(lon) != Math.signum(sunLon)) {
+			d = 360 - d;
+		}
+		if (d < 90)
+			attn = Math.cos(Math.toRadians(d)) * Math.cos(Math.toRadians(lat));
+		return attn;
+	}
+}
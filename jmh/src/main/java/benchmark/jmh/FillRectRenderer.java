@@ -0,0 +1,145 @@
+package benchmark.jmh;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+
+import javax.imageio.ImageIO;
+
+import core.Palette;
+
+/**
+ * Draws frames of the map the way the presentation did before MapCompositor:
+ * the scaled map, the temperature cells filled with fillRect and the solar
+ * line stroked with a 10 pixel BasicStroke each drawn into an image of their
+ * own, then drawn over each other into a fourth with an AlphaComposite of
+ * SRC_OVER at 0.5.  Every frame is drawn in full into new images.
+ *
+ * It is the reference MapCompositor's frames are checked against pixel for
+ * pixel, and RenderingBenchmarks measures it beside the current path.
+ */
+public final class FillRectRenderer {
+
+	private final Palette palette;
+	private final BufferedImage map;
+	private final int width;
+	private final int height;
+	private final int stride;
+	private final int cellWidth;
+	private final int cellHeight;
+
+	/**
+	 * Lays the cells out as DisplayModel does: one cell per grid cell unless a
+	 * cell would be smaller than a pixel, in which case only every stride-th
+	 * grid cell is drawn.
+	 * @param map The map scaled to the canvas, or null to draw without it
+	 * @param spacing Grid spacing in degrees
+	 */
+	public FillRectRenderer(Palette palette, BufferedImage map, int width, int height, double spacing) {
+		this.palette = palette;
+		this.map = map;
+		this.width = width;
+		this.height = height;
+		double pixelsPerCell = Math.min(width / 360.0, height / 180.0) * spacing;
+		stride = pixelsPerCell >= 1 ? 1 : (int) Math.ceil(1 / pixelsPerCell);
+		cellWidth = (int) Math.floor(width / 360.0 * spacing * stride);
+		cellHeight = (int) Math.floor(height / 180.0 * spacing * stride);
+	}
+
+	/**
+	 * Loads the world map and scales it to a canvas as DisplayModel does.
+	 * @throws IOException When the map is not on the classpath
+	 */
+	public static BufferedImage loadMap(int width, int height) throws IOException {
+		URL resource = FillRectRenderer.class.getClassLoader().getResource("world-map.jpg");
+		if(resource == null)
+			throw new IOException("world-map.jpg is not on the classpath");
+		BufferedImage map = ImageIO.read(resource);
+		BufferedImage scaledMap = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+		Graphics2D graphics = scaledMap.createGraphics();
+		try{
+			graphics.drawImage(map, 0, 0, width, height, null);
+		}
+		finally{
+			graphics.dispose();
+		}
+		return scaledMap;
+	}
+
+	/**
+	 * @return Column the solar line is centered on for a longitude, as
+	 * DisplayModel.calculateSolarPoint places it
+	 */
+	public static int solarX(double longitude, int width) {
+		return (int) Math.floor((longitude + 180) * (width / 360.0));
+	}
+
+	/**
+	 * @return Number of grid cells drawn as one cell in each direction
+	 */
+	public int getStride() {
+		return stride;
+	}
+
+	public int getCellWidth() {
+		return cellWidth;
+	}
+
+	public int getCellHeight() {
+		return cellHeight;
+	}
+
+	/**
+	 * Draws a frame.  Cell column i and row j cover the cellWidth by
+	 * cellHeight block starting at pixel (i * cellWidth, j * cellHeight).
+	 * @param cells Palette index of each cell, row by row
+	 * @param solarX Column the solar line is centered on
+	 * @return A new TYPE_4BYTE_ABGR image of the frame
+	 */
+	public BufferedImage render(int[] cells, int columns, int rows, int solarX) {
+		BufferedImage cellLayer = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+		Graphics2D graphics = cellLayer.createGraphics();
+		try{
+			graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+			for(int i = 0; i < columns; i++){
+				for(int j = 0; j < rows; j++){
+					graphics.setColor(new Color(palette.colorAt(cells[j * columns + i])));
+					graphics.fillRect(i * cellWidth, j * cellHeight, cellWidth, cellHeight);
+				}
+			}
+		}
+		finally{
+			graphics.dispose();
+		}
+
+		BufferedImage solarLayer = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+		graphics = solarLayer.createGraphics();
+		try{
+			graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+			graphics.setColor(Color.YELLOW);
+			graphics.setStroke(new BasicStroke(10));
+			graphics.drawLine(solarX, 0, solarX, height);
+		}
+		finally{
+			graphics.dispose();
+		}
+
+		BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+		graphics = frame.createGraphics();
+		try{
+			graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+			if(map != null)
+				graphics.drawImage(map, 0, 0, null);
+			graphics.drawImage(cellLayer, 0, 0, null);
+			graphics.drawImage(solarLayer, 0, 0, null);
+		}
+		finally{
+			graphics.dispose();
+		}
+		return frame;
+	}
+}
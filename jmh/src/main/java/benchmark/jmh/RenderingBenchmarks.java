@@ -0,0 +1,150 @@
+package benchmark.jmh;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import EarthPresentation.DisplayModel;
+import EarthSim.Simulation;
+import EarthSim.SimulationGrid;
+import core.Config;
+import core.Palette;
+import core.SimulationState;
+
+/**
+ * Benchmarks for the presentation side.  The states rendered are captured
+ * from a simulation during setup and published to the buffer before every
+ * render, so only the image generation and the copy into the frame are
+ * measured.
+ *
+ * generateNextImageSet renders the same state every time, which after the
+ * first frames leaves nothing to redraw.  generateChangingImageSet
+ * alternates between two states a simulated hour apart, with the sun on
+ * opposite sides, so most of every frame is redrawn.
+ *
+ * fillRectChangingImageSet draws the same two states the way frames were
+ * drawn before MapCompositor, with FillRectRenderer, to compare against
+ * generateChangingImageSet.  Its palette indices are worked out during
+ * setup, so only the drawing is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RenderingBenchmarks {
+
+	/* Grid spacing in degrees. */
+	@Param({"1", "5", "15"})
+	public double spacing;
+
+	/* Canvas size, width x height in pixels. */
+	@Param({"1000x400", "3840x2160"})
+	public String canvas;
+
+	private Config config;
+	private DisplayModel model;
+	private int width;
+	private int height;
+	private double[][] states;
+	private int next;
+	private PrintStream out;
+	private FillRectRenderer fillRect;
+	private int[][] cells;
+	private int columns;
+	private int rows;
+	private int[] solarX;
+
+	@Setup
+	public void setup() throws IOException {
+		//DisplayModel reports its timing on stdout
+		out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				//discard output from the benchmarked code
+			}
+		}));
+
+		config = Config.parse(new String[0]);
+		Simulation simulation = new Simulation(config, spacing, 1);
+		SimulationGrid grid = simulation.getGrid();
+		width = grid.mWidth;
+		height = grid.mHeight;
+		states = new double[2][width * height];
+		simulation.step();
+		grid.copyTemperatures(states[0]);
+		for(int i = 0; i < 60; i++)
+			simulation.step();
+		grid.copyTemperatures(states[1]);
+		next = 0;
+
+		String[] size = canvas.split("x");
+		//with initiative the model polls the buffer rather than blocking on it
+		model = new DisplayModel(config, Integer.parseInt(size[1]), Integer.parseInt(size[0]), 1000, true);
+		model.setGridSpacing(spacing);
+
+		int canvasWidth = Integer.parseInt(size[0]);
+		int canvasHeight = Integer.parseInt(size[1]);
+		Palette palette = Palette.standard();
+		fillRect = new FillRectRenderer(palette, FillRectRenderer.loadMap(canvasWidth, canvasHeight),
+				canvasWidth, canvasHeight, spacing);
+		int stride = fillRect.getStride();
+		columns = (width + stride - 1) / stride;
+		rows = (height + stride - 1) / stride;
+		cells = new int[2][columns * rows];
+		solarX = new int[] {FillRectRenderer.solarX(0, canvasWidth), FillRectRenderer.solarX(180, canvasWidth)};
+		for(int s = 0; s < 2; s++){
+			for(int j = 0; j < rows; j++){
+				for(int i = 0; i < columns; i++)
+					cells[s][j * columns + i] = palette.indexOf(states[s][j * stride * width + i * stride]);
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(out);
+	}
+
+	@Benchmark
+	public BufferedImage generateNextImageSet() {
+		return render(states[0], 0);
+	}
+
+	@Benchmark
+	public BufferedImage generateChangingImageSet() {
+		next ^= 1;
+		return render(states[next], next * 180);
+	}
+
+	@Benchmark
+	public BufferedImage fillRectChangingImageSet() {
+		next ^= 1;
+		return fillRect.render(cells[next], columns, rows, solarX[next]);
+	}
+
+	private BufferedImage render(double[] temperatures, double sunLongitude) {
+		SimulationState frame = config.claimState();
+		System.arraycopy(temperatures, 0, frame.reuse(width, height, sunLongitude), 0, temperatures.length);
+		config.publishState(frame);
+		model.generateNextImageSet();
+		return model.getMapImage();
+	}
+}
@@ -0,0 +1,77 @@
+package benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import EarthSim.Simulation;
+import EarthSim.SimulationGrid;
+import core.Config;
+
+/**
+ * Benchmarks for the simulation side: the convection and radiation passes
+ * on their own, copying a grid, and a full simulation step including the
+ * copy of the state that is handed to the display.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SimulationBenchmarks {
+
+	/* Simulated minutes per step. */
+	private static final int TIMESTEP = 1;
+
+	/* Grid spacing in degrees. */
+	@Param({"1", "5", "15"})
+	public double spacing;
+
+	private SimulationGrid grid;
+	private Simulation simulation;
+	private int runningTime;
+
+	@Setup
+	public void setup() {
+		grid = new SimulationGrid(spacing);
+		//a config of its own, so nothing global has to be set up
+		simulation = new Simulation(Config.parse(new String[0]), spacing, TIMESTEP);
+		runningTime = 0;
+	}
+
+	@Benchmark
+	public SimulationGrid processConvection() {
+		grid.processConvection();
+		return grid;
+	}
+
+	@Benchmark
+	public SimulationGrid calculateRadiation() {
+		double sunLongitude = 180 - ((runningTime + 720) % 1440) * 360 / 1440;
+		runningTime += TIMESTEP;
+		grid.calculateRadiantTemperatures(sunLongitude);
+		return grid;
+	}
+
+	@Benchmark
+	public SimulationGrid copy() {
+		return new SimulationGrid(grid);
+	}
+
+	@Benchmark
+	public Simulation processStep() {
+		simulation.processStep();
+		return simulation;
+	}
+}
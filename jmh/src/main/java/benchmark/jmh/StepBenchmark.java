@@ -0,0 +1,70 @@
+package benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import EarthSim.SimulationGrid;
+import EarthSim.StepEngine;
+import core.KernelEnum;
+
+/**
+ * Measures simulation steps per second for each step kernel and number of
+ * step workers.
+ *
+ * The vector kernel needs the heated-earth jar built with -P vector and the
+ * forks started with --add-modules jdk.incubator.vector, so it is left out
+ * of the default kernels:
+ *   java -jar jmh/target/benchmarks.jar StepBenchmark -p kernel=VECTOR
+ *       -jvmArgsAppend "--add-modules jdk.incubator.vector"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class StepBenchmark {
+
+	/* Grid spacing in degrees. */
+	@Param({"1", "2", "5"})
+	public double spacing;
+
+	@Param({"STANDARD", "FUSED", "SEQUENTIAL"})
+	public KernelEnum kernel;
+
+	/* Number of bands each step is split into. */
+	@Param({"1"})
+	public int parallelism;
+
+	private SimulationGrid grid;
+	private StepEngine engine;
+	private int runningTime;
+
+	@Setup
+	public void setup() {
+		if(kernel == KernelEnum.VECTOR && !SimulationGrid.isVectorAvailable())
+			throw new IllegalStateException("The vector kernel is not available in this fork");
+		grid = new SimulationGrid(spacing);
+		engine = new StepEngine(parallelism, kernel);
+		runningTime = 0;
+	}
+
+	@Benchmark
+	public SimulationGrid step() {
+		double sunLongitude = 180 - ((runningTime + 720) % 1440) * 360 / 1440;
+		engine.step(grid, sunLongitude);
+		runningTime += 1;
+		return grid;
+	}
+}
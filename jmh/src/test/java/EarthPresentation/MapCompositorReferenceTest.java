@@ -0,0 +1,90 @@
+package EarthPresentation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import EarthSim.SimulationGrid;
+import benchmark.jmh.FillRectRenderer;
+import core.Palette;
+
+// MapCompositor writes each pixel once instead of drawing layers with
+// Graphics2D, so its frames are checked pixel for pixel against
+// FillRectRenderer, which draws them the way the presentation used to, on
+// the canvases RenderingBenchmarks measures and on one no spacing divides.
+// The cells are random palette indices, so every color is blended.
+public class MapCompositorReferenceTest {
+
+	// the canvases RenderingBenchmarks measures, drawn at one longitude per
+	// spacing since drawing them the old way takes seconds
+	private static final int[][] BENCHMARK_CANVASES = new int[][] {
+		{1000, 400}, {3840, 2160}
+	};
+
+	// 0.25 draws only every few grid cells on the smaller canvases
+	private static final double[] SPACINGS = new double[] {15, 5, 1, 0.25};
+
+	// includes the edges, where part of the solar line is off the canvas
+	private static final double[] SUN_LONGITUDES = new double[] {-180, -97.5, 0, 42.25, 179};
+
+	private final Palette palette = Palette.standard();
+	private final Random random = new Random(6310);
+
+	@Test
+	public void framesMatchFillRectFramesOnBenchmarkCanvases() throws IOException {
+		for(int[] canvas : BENCHMARK_CANVASES) {
+			BufferedImage map = FillRectRenderer.loadMap(canvas[0], canvas[1]);
+			for(int s = 0; s < SPACINGS.length; s++)
+				assertFramesMatch(canvas[0], canvas[1], map, SPACINGS[s], SUN_LONGITUDES[s]);
+		}
+	}
+
+	@Test
+	public void framesMatchFillRectFramesOnUnevenCanvas() throws IOException {
+		BufferedImage map = FillRectRenderer.loadMap(333, 211);
+		for(double spacing : SPACINGS) {
+			for(double longitude : SUN_LONGITUDES) {
+				assertFramesMatch(333, 211, map, spacing, longitude);
+				assertFramesMatch(333, 211, null, spacing, longitude);
+			}
+		}
+	}
+
+	// draws random cells both ways and compares every pixel
+	private void assertFramesMatch(int width, int height, BufferedImage map, double spacing, double longitude) {
+		FillRectRenderer reference = new FillRectRenderer(palette, map, width, height, spacing);
+		int stride = reference.getStride();
+		int columns = (SimulationGrid.cellCount(360, spacing) + stride - 1) / stride;
+		int rows = (SimulationGrid.cellCount(180, spacing) + stride - 1) / stride;
+		int[] cells = new int[columns * rows];
+		for(int i = 0; i < cells.length; i++)
+			cells[i] = random.nextInt(palette.size());
+		int solarX = FillRectRenderer.solarX(longitude, width);
+
+		MapCompositor compositor = new MapCompositor(palette);
+		compositor.setBase(map);
+		MapFrame frame = new MapFrame(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+		compositor.draw(frame, cells, columns, rows, reference.getCellWidth(), reference.getCellHeight(), solarX);
+		assertEquals("Pixels differing on " + width + "x" + height + " at spacing " + spacing
+				+ (map == null ? " without the map" : "") + ", sun at " + longitude,
+				0, countDifferent(reference.render(cells, columns, rows, solarX), frame.image));
+	}
+
+	// number of pixels whose non-premultiplied ARGB values differ
+	private static long countDifferent(BufferedImage a, BufferedImage b) {
+		int width = a.getWidth();
+		int height = a.getHeight();
+		int[] expected = a.getRGB(0, 0, width, height, null, 0, width);
+		int[] actual = b.getRGB(0, 0, width, height, null, 0, width);
+		long different = 0;
+		for(int i = 0; i < expected.length; i++) {
+			if(expected[i] != actual[i])
+				different++;
+		}
+		return different;
+	}
+}
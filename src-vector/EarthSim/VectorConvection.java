@@ -0,0 +1,81 @@
+package EarthSim;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * Convection kernel built on the incubating Vector API.  It is compiled
+ * separately from the rest of the tree (see the README) and is only used
+ * when the jdk.incubator.vector module is present at run time; otherwise
+ * SimulationGrid keeps using its scalar loop.
+ *
+ * Each row is split into the interior columns, whose east and west
+ * neighbors are contiguous, and the first and last columns, which wrap
+ * around in longitude and are done with scalar code.  Rows at the poles
+ * gather their north or south neighbors through the fold column table.
+ * Products are summed in the same order as the scalar two-plane loop, so
+ * results are bit-for-bit identical to the standard kernel's, which
+ * KernelSchemeTest checks.  Like the standard kernel, it reads every
+ * neighbor as it was before the step, which is not the original model's
+ * in-place order.
+ */
+class VectorConvection implements ConvectionKernel {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	@Override
+	public void convectRows(GridGeometry g, double[] src, double[] dst, int yStart, int yEnd) {
+		int width = g.mWidth;
+		int length = SPECIES.length();
+		int[] eastColumns = g.mEastColumns;
+		int[] westColumns = g.mWestColumns;
+
+		for (int y = yStart; y < yEnd; y++) {
+			int row = y * width;
+			int northRow = g.mNorthRowOffsets[y];
+			int southRow = g.mSouthRowOffsets[y];
+			int[] northColumns = g.mNorthColumns[y];
+			int[] southColumns = g.mSouthColumns[y];
+			boolean northFold = northColumns != g.mColumns;
+			boolean southFold = southColumns != g.mColumns;
+			double northWeight = g.mNorthWeights[y];
+			double southWeight = g.mSouthWeights[y];
+			double eastWeight = g.mEastWeights[y];
+			double westWeight = g.mWestWeights[y];
+
+			/* Column 0 wraps to the west. */
+			dst[row] = northWeight * src[northRow + northColumns[0]]
+					+ southWeight * src[southRow + southColumns[0]]
+					+ eastWeight * src[row + eastColumns[0]]
+					+ westWeight * src[row + westColumns[0]];
+
+			/* Interior columns, as long as the east neighbor of the last
+			 * lane is still in this row. */
+			int x = 1;
+			for (; x + length < width; x += length) {
+				DoubleVector north = northFold
+						? DoubleVector.fromArray(SPECIES, src, northRow, northColumns, x)
+						: DoubleVector.fromArray(SPECIES, src, northRow + x);
+				DoubleVector south = southFold
+						? DoubleVector.fromArray(SPECIES, src, southRow, southColumns, x)
+						: DoubleVector.fromArray(SPECIES, src, southRow + x);
+				DoubleVector east = DoubleVector.fromArray(SPECIES, src, row + x + 1);
+				DoubleVector west = DoubleVector.fromArray(SPECIES, src, row + x - 1);
+
+				north.mul(northWeight)
+						.add(south.mul(southWeight))
+						.add(east.mul(eastWeight))
+						.add(west.mul(westWeight))
+						.intoArray(dst, row + x);
+			}
+
+			/* Remaining columns, including the last one which wraps to
+			 * the east. */
+			for (; x < width; x++) {
+				dst[row + x] = northWeight * src[northRow + northColumns[x]]
+						+ southWeight * src[southRow + southColumns[x]]
+						+ eastWeight * src[row + eastColumns[x]]
+						+ westWeight * src[row + westColumns[x]];
+			}
+		}
+	}
+}
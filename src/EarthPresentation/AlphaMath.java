@@ -0,0 +1,62 @@
+package EarthPresentation;
+
+/**
+ * The 8 bit arithmetic Java2D blends non-premultiplied ARGB pixels with
+ * (AlphaMath.c and the SrcOver loops), so pixels blended here match the ones
+ * Graphics2D would have drawn exactly.
+ */
+final class AlphaMath {
+
+	//a * b / 255 and b * 255 / a, rounded, indexed by a << 8 | b
+	private static final byte[] MUL8 = new byte[256 * 256];
+	private static final byte[] DIV8 = new byte[256 * 256];
+
+	static {
+		for(int a = 0; a < 256; a++) {
+			long increment = a == 0 ? 0 : ((0xffL << 24) + a / 2) / a;
+			for(int b = 0; b < 256; b++) {
+				MUL8[a << 8 | b] = (byte) ((0x10101L * a * b + (1 << 23)) >> 24);
+				DIV8[a << 8 | b] = (byte) (b >= a ? 255 : ((1L << 23) + increment * b) >> 24);
+			}
+		}
+	}
+
+	private AlphaMath() {
+	}
+
+	static int mul8(int a, int b) {
+		return MUL8[a << 8 | b] & 0xff;
+	}
+
+	static int div8(int a, int b) {
+		return DIV8[a << 8 | b] & 0xff;
+	}
+
+	/**
+	 * Draws one pixel over another as AlphaComposite.SRC_OVER with an extra
+	 * alpha does.
+	 * @param dst Pixel drawn onto
+	 * @param src Pixel drawn
+	 * @param extraAlpha Extra alpha of the composite, 0 to 255
+	 * @return The resulting pixel
+	 */
+	static int over(int dst, int src, int extraAlpha) {
+		int srcA = mul8(extraAlpha, src >>> 24);
+		if(srcA == 0)
+			return dst;
+		if(srcA == 0xff)
+			return src;
+
+		int dstA = mul8(0xff - srcA, dst >>> 24);
+		int resA = srcA + dstA;
+		int red = mul8(srcA, (src >> 16) & 0xff) + mul8(dstA, (dst >> 16) & 0xff);
+		int green = mul8(srcA, (src >> 8) & 0xff) + mul8(dstA, (dst >> 8) & 0xff);
+		int blue = mul8(srcA, src & 0xff) + mul8(dstA, dst & 0xff);
+		if(resA < 0xff) {
+			red = div8(resA, red);
+			green = div8(resA, green);
+			blue = div8(resA, blue);
+		}
+		return resA << 24 | red << 16 | green << 8 | blue;
+	}
+}
@@ -2,14 +2,20 @@ package EarthPresentation;
 
 import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
+import java.awt.image.BufferedImage;
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
 
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 public class DisplayGrid extends JPanel implements Observer, ComponentListener {
 	
@@ -18,6 +24,8 @@ public class DisplayGrid extends JPanel implements Observer, ComponentListener {
 	private final DisplayModel model;
 	
 	private JLabel mapPanel;
+	//icon showing the model's image, kept so only what changed is repainted
+	private ImageIcon mapIcon;
 	
 	public DisplayGrid(final DisplayModel model, Dimension initialSize) {
 		super(new BorderLayout());
@@ -43,13 +51,47 @@ public class DisplayGrid extends JPanel implements Observer, ComponentListener {
 
 	/**
 	 * Triggered when the model notifies the View
-	 * This will cause the image to be updated & repainted.
+	 * This will cause the image to be updated & repainted.  Only the regions
+	 * the model reports as changed are repainted, unless the image changed size.
 	 */
 	@Override
 	public void update(Observable o, Object arg) {
-		mapPanel.setIcon(new ImageIcon(model.getMapImage()));
-		this.invalidate();
-		this.repaint();	
+		BufferedImage image = model.getMapImage();
+		if(image == null)
+			return;
+		List<Rectangle> dirty = model.getMapDirtyRegion();
+		
+		if(mapIcon == null || dirty == null
+				|| mapIcon.getIconWidth() != image.getWidth() || mapIcon.getIconHeight() != image.getHeight()) {
+			mapIcon = new ImageIcon(image);
+			mapPanel.setIcon(mapIcon);
+			this.invalidate();
+			this.repaint();
+			return;
+		}
+		
+		mapIcon.setImage(image);
+		if(dirty.isEmpty())
+			return;
+		Point origin = getIconOrigin();
+		for(Rectangle region : dirty)
+			mapPanel.repaint(origin.x + region.x, origin.y + region.y, region.width, region.height);
+	}
+	
+	/**
+	 * @return Where the label draws the top left corner of the icon
+	 */
+	private Point getIconOrigin() {
+		Insets insets = mapPanel.getInsets();
+		Rectangle view = new Rectangle(insets.left, insets.top,
+				mapPanel.getWidth() - insets.left - insets.right,
+				mapPanel.getHeight() - insets.top - insets.bottom);
+		Rectangle iconBounds = new Rectangle();
+		SwingUtilities.layoutCompoundLabel(mapPanel, mapPanel.getFontMetrics(mapPanel.getFont()), mapPanel.getText(), mapIcon,
+				mapPanel.getVerticalAlignment(), mapPanel.getHorizontalAlignment(),
+				mapPanel.getVerticalTextPosition(), mapPanel.getHorizontalTextPosition(),
+				view, iconBounds, new Rectangle(), mapPanel.getIconTextGap());
+		return iconBounds.getLocation();
 	}
 
 	@Override
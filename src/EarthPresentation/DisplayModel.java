@@ -1,26 +1,28 @@
 package EarthPresentation;
 
-import java.awt.AlphaComposite;
-import java.awt.BasicStroke;
-import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.net.URL;
+import java.util.List;
 import java.util.Observable;
 
 import javax.imageio.ImageIO;
 import javax.swing.Timer;
 
 import EarthSim.Simulation;
+import EarthSim.SimulationGrid;
 
 import core.Config;
-import core.DataCell;
-import core.SimulationState;
+import core.LatencyRecorder;
+import core.Lifecycle;
+import core.Palette;
+import core.StateView;
 import core.ThreadedEnum;
 
 public class DisplayModel extends Observable implements Runnable, ActionListener{
@@ -28,19 +30,27 @@ public class DisplayModel extends Observable implements Runnable, ActionListener
 	//true if has initiative, false if simulation has initiative, null if MasterGui has it
 	private final Boolean hasInitative;
 	
-	//Flags for handling stop, start, pause, resume, and size changed during simulation
-	private volatile boolean isCancelled = false; 
+	//configuration of the run being displayed, which holds the buffer it consumes
+	private final Config config;
+	
+	//Running, paused or cancelled.  Shared with the simulation when set by the controller
+	private Lifecycle lifecycle;
+	
+	//Flag for handling size changed during simulation
 	private volatile boolean sizeChanged = false;
-	private volatile boolean pauseRequested = false;
 
 	private Timer refreshTimer;
 	
-	//Images for View
-	private BufferedImage temperatureMapImage;
-	private BufferedImage solarOverlay;
-	private BufferedImage compositeMap;
+	//Images for View, reused from frame to frame until the canvas size changes
+	private final TripleBuffer compositeMaps = new TripleBuffer(BufferedImage.TYPE_INT_ARGB);
 	private BufferedImage mapImage;
 	
+	//draws each frame over the cached map in one pass
+	private final MapCompositor compositor;
+	//last frame published, which the view is told the changes since
+	private MapFrame lastPublished;
+	private List<Rectangle> publishDirty;
+	
 	//current size of canvases
 	private int mapCanvasHeight;
 	private int mapCanvasWidth;
@@ -62,17 +72,34 @@ public class DisplayModel extends Observable implements Runnable, ActionListener
 	private int refreshRate;
 	
 	//used for DisplayCell calculations
-	private int gridSpacing;
+	private double gridSpacing;
+
+	
+	//colors temperatures are drawn with, and the palette index of each cell of the frame being drawn
+	private final Palette palette;
+	private int[] cellIndices = new int[0];
+	
+	//time from a state being produced to its image being ready
+	private final LatencyRecorder stepToImageLatency = new LatencyRecorder();
+	
+	//frames skipped because they were older than one already shown, or rewritten while being rendered
+	private volatile long lastSequence;
+	private volatile long staleFrames;
+	private volatile long tornFrames;
 	
 	public DisplayModel(int height, int width, Boolean initiative) {
-		this.mapCanvasHeight = height;
-		this.mapCanvasWidth = width;
-		this.refreshRate = 1000;
-		this.refreshTimer = new Timer(refreshRate, this); //default?
-		this.hasInitative = initiative;
+		this(Config.getInstance(), height, width, 1000, initiative); //default?
 	}
 	
 	public DisplayModel(int height, int width, int refreshRate, Boolean initiative) {
+		this(Config.getInstance(), height, width, refreshRate, initiative);
+	}
+	
+	public DisplayModel(Config config, int height, int width, int refreshRate, Boolean initiative) {
+		this.config = config;
+		this.lifecycle = new Lifecycle(config);
+		this.palette = config.getSettings().getPalette();
+		this.compositor = new MapCompositor(palette);
 		this.mapCanvasHeight = height;
 		this.mapCanvasWidth = width;
 		this.refreshRate = refreshRate;
@@ -85,7 +112,6 @@ public class DisplayModel extends Observable implements Runnable, ActionListener
 	 * running unthreaded.
 	 */
 	public void consume() {
-		Config config = Config.getInstance();
 		while(!config.getBuffer().isEmpty()) {
 			if(sizeChanged) {
 				updateSize();
@@ -97,80 +123,62 @@ public class DisplayModel extends Observable implements Runnable, ActionListener
 	
 	/**
 	 * This is the runnable context for when running threaded.  It automatically determines
-	 * how it should behave based on the flags set in the config singleton.
+	 * how it should behave based on the flags set in its run's config.
+	 * Instead of polling, it blocks on the config's handoff signal, which fires whenever
+	 * the buffer or initiative flag changes.
 	 */
 	public void run() {
-		isCancelled = false;
-		Config config = Config.getInstance();
 		running = true;
 		refreshTimer.start();
 		startTime = System.currentTimeMillis();
 		switch(config.getInitiative()){
 		//Master control has initiative, run forever & consume when possible
 		case MASTER_CONTROL:
-			while(!isCancelled){
-				checkPause();
+			while(lifecycle.awaitRunning()){
 				if(sizeChanged) {
 					updateSize();
 				}
+				long generation = config.getHandoffGeneration();
 				if(config.getBuffer().isEmpty()){
-					try{
-						Thread.sleep(50);
-					}
-					catch(InterruptedException ex){
+					if(!config.awaitHandoff(generation))
 						break;
-					}
 				}
 				else
 					generateNextImageSet();
-				
-				Thread.yield();
 			}
 			break;
-		//simulation has initiative.  Poll forever and run when flag on config object changes
+		//simulation has initiative.  Wait for the flag on config object to change
 		case SIMULATION: 
 				//simulation is threaded so handle accordingly
 				if(config.getThreadingFlags().contains(ThreadedEnum.SIMULATION)) {
-					while(!isCancelled){
-						checkPause();
+					while(lifecycle.awaitRunning()){
 						if(sizeChanged) {
 							updateSize();
 						}
+						long generation = config.getHandoffGeneration();
 						//buffer is drained.  Notify completion
 						if(config.requested() && config.getBuffer().isEmpty())
 							config.completed();
 						//buffer contains data.  Consume & display
 						else if(config.requested() && !config.getBuffer().isEmpty())
 							generateNextImageSet();
-						//Not requested to run.  Spinwait.
-						else {
-							try{
-								Thread.sleep(50);
-							}
-							catch(InterruptedException ex){
-								break;
-							}
-						}
+						//Not requested to run.  Wait for a request.
+						else if(!config.awaitHandoff(generation))
+							break;
 					}
 				}
 				//simulation is NOT threaded.  No need for buffer checking, only run when requested
 				else {
-					while(!isCancelled){
-						checkPause();
+					while(lifecycle.awaitRunning()){
 						if(sizeChanged) {
 							updateSize();
 						}
+						long generation = config.getHandoffGeneration();
 						if(config.requested()){
 							generateNextImageSet();
 						}
-						else {
-							try{
-								Thread.sleep(50);
-							}
-							catch(InterruptedException ex){
-								break;
-							}
-						}
+						else if(!config.awaitHandoff(generation))
+							break;
 					}
 				}
 				break;
@@ -179,17 +187,13 @@ public class DisplayModel extends Observable implements Runnable, ActionListener
 				//simulation is threaded.  Use notify flags
 				if(config.getThreadingFlags().contains(ThreadedEnum.SIMULATION)){
 					config.request(); //request data and pull from buffer asap
-					while(!isCancelled){
-						checkPause();
-						//no data in buffer, request & spinwait
+					while(lifecycle.awaitRunning()){
+						long generation = config.getHandoffGeneration();
+						//no data in buffer, request & wait for it
 						if(config.getBuffer().isEmpty()){
 							config.request();
-							try{
-								Thread.sleep(50);
-							}
-							catch(InterruptedException ex){
+							if(!config.awaitHandoff(generation))
 								break;
-							}
 						}
 						else {
 							generateNextImageSet();
@@ -199,10 +203,11 @@ public class DisplayModel extends Observable implements Runnable, ActionListener
 				//simulation is NOT threaded.  Take ownership and run directly
 				else{
 					Simulation producer = (Simulation) config.getNonInitativeObject();
-					while(!isCancelled){
+					while(lifecycle.awaitRunning()){
 						producer.produce();
 						while(!config.getBuffer().isEmpty()) {
-							checkPause();
+							if(!lifecycle.awaitRunning())
+								break;
 							generateNextImageSet();
 						}
 						Thread.yield();
@@ -216,69 +221,107 @@ public class DisplayModel extends Observable implements Runnable, ActionListener
 		running = false;
 	}
 	
-	/**
-	 * Check if paused and spinwait until paused is false
-	 */
-	public void checkPause() {
- 		while(pauseRequested) {
-			try{
-				Thread.sleep(500);
-				Thread.yield();
-			}
-			catch(InterruptedException ex) {
-				break;
-			}
-		}
-	}
-	
 	/**
 	 * This is the master image generating function.
 	 * This function handles the order of when images need to be processed
 	 */
 	public void generateNextImageSet() {
-		SimulationState simState;
+		StateView simState;
 		if(hasInitative == null || !hasInitative){
-			try{
-				//if we don't have initiative block dequeue from buffer
-				long startTake = System.nanoTime();
-				simState = Config.getInstance().getBuffer().take();
-				System.out.print("Idle time: " + (System.nanoTime() - startTake) + " ns\n");
-			}
-			catch(InterruptedException ex) {
+			//if we don't have initiative block dequeue from buffer
+			long startTake = System.nanoTime();
+			simState = takeState();
+			if(simState == null)
 				return;
-			}
+			System.out.print("Idle time: " + (System.nanoTime() - startTake) + " ns\n");
 		}
 		else {
 			//We have initiative.  DO NOT BLOCK!
 			long startTime = System.nanoTime();
-			simState = Config.getInstance().getBuffer().poll();
+			simState = config.pollState();
 			if(simState == null)
 				return;
 			System.out.print("Idle time: " + (System.nanoTime() - startTime) + " ns\n");
 		}
 		
-		DataCell[][] cells = simState.getCells();
-		generateNextMapImage(cells);
-		generateSolarOverlayImage(simState.getSunLongitude());
-		generateCompositeMapImage();
+		long renderStart = System.nanoTime();
+		boolean complete;
+		try {
+			//a frame must never go backwards; skip it without rendering
+			if(simState.getSequence() <= lastSequence) {
+				staleFrames++;
+				return;
+			}
+			long generation = simState.getGeneration();
+			generateCompositeMapImage(simState);
+			//checked after rendering so a frame rewritten part way through is caught
+			complete = simState.isUnchanged(generation);
+			lastSequence = simState.getSequence();
+			stepToImageLatency.record(System.nanoTime() - simState.getCreatedNanos());
+		}
+		finally {
+			//the frame is reused by the simulation once released, so nothing above may keep it
+			config.releaseState(simState);
+			config.recordConsumed(renderStart);
+		}
+		if(!complete) {
+			tornFrames++;
+			return;
+		}
+		lastPublished = compositeMaps.getBack(mapCanvasWidth, mapCanvasHeight);
+		compositeMaps.publish(publishDirty);
 		imageReady = true; //notify view outside of refresh rate
 	}
 	
+	/**
+	 * Blocks until a state is in the buffer and removes it.  It must be released
+	 * back to the buffer once rendered.
+	 * @return The state, or null if stopped or interrupted while waiting
+	 */
+	private StateView takeState() {
+		long generation = config.getHandoffGeneration();
+		StateView simState = config.pollState();
+		while(simState == null && !lifecycle.isCancelled()) {
+			if(!config.awaitHandoff(generation))
+				return null;
+			generation = config.getHandoffGeneration();
+			simState = config.pollState();
+		}
+		return simState;
+	}
+	
 	/**
 	 * Calculates the dimensions of each cell on the globe
+	 * @param stride Number of grid cells drawn as one cell in each direction
 	 * @return Dimension object containing the height & width of each cell
 	 */
-	private Dimension calculateCellDimension() {
+	private Dimension calculateCellDimension(int stride) {
 		double latDegPerPixel = getPixelsPerDegree(LatLonEnum.LATITUDE);
 		
-		int width = (int) Math.floor(latDegPerPixel * this.gridSpacing);
+		int width = (int) Math.floor(latDegPerPixel * this.gridSpacing * stride);
 		
 		double lonDegPerPixel = getPixelsPerDegree(LatLonEnum.LONGITUDE);
-		int height = (int) Math.floor(lonDegPerPixel * this.gridSpacing);
+		int height = (int) Math.floor(lonDegPerPixel * this.gridSpacing * stride);
 		
 		return new Dimension(width, height);
 	}
 	
+	/**
+	 * Calculates how many grid cells are drawn as one cell in each direction.
+	 * This is 1 unless the grid is so fine that a cell would be smaller than a
+	 * pixel, in which case only every stride-th cell is drawn.
+	 * @return Number of grid cells per drawn cell
+	 */
+	private int calculateCellStride() {
+		double pixelsPerCell = Math.min(
+				getPixelsPerDegree(LatLonEnum.LATITUDE),
+				getPixelsPerDegree(LatLonEnum.LONGITUDE)) * this.gridSpacing;
+		if(pixelsPerCell >= 1)
+			return 1;
+		
+		return (int) Math.ceil(1 / pixelsPerCell);
+	}
+	
 	/**
 	 * Calculates how many pixels make up a single degree of latitude or longitude
 	 * based on the current size of the canvas.
@@ -297,187 +340,65 @@ public class DisplayModel extends Observable implements Runnable, ActionListener
 	}
 	
 	/**
-	 * Calculates the color of each cell on the earth model
-	 * @param cells The datacells generated by the simulation
-	 * @return A 2D array of Color objects to pass to a Graphics2D object
-	 */
-	private Color[][] calculateColors(DataCell[][] cells) {
-		Color[][] cellColors = new Color[this.cols][this.rows];
-		for(int i = 0; i < cols; i++){
-			for(int j = 0; j < rows; j++){
-				cellColors[i][j] = calculateColor(cells[i][j].getTemperature());
-			}
-		}
-		
-		return cellColors;
-	}
-	
-	/**
-	 * Calculates and sets the color of the cell using the algorithm provided by the sample
-	 * in the assignment page.
-	 */
-	private static Color calculateColor(double temperature) {
-        //System.out.printf("---- %f\n", temperature);
-		//convert to Celsius for more accurate color values
-		double celsiusTemp = temperature - 273.15;
-		int temp = (int)Math.floor(celsiusTemp);
-		int red, blue, green;
-
-		if (temp <= -100) {
-			blue = 255;
-			green = 0;
-			red = 0;
-		}
-		else if (temp <= -46) {
-			temp = -1 * temp;
-			blue = 255;
-			green = 145 - (temp * 10) % 115;
-			red = 0;
-		}
-		else if (temp <= -23 && temp > -46) {
-			temp = -1 * temp;
-			blue = 255;
-			green = 145;
-			red = 145 + (temp * 5) % 115;
-		}
-		else if (temp < 0 && temp > -23) {
-			temp = -1 * temp;
-			blue = 255;
-			green = 145;
-			red = 145 - (temp * 5);
-		}
-		else if (temp == 0) {
-			blue = 225;
-			green = 145;
-			red = 145;
-		}
-		else if (temp > 0 && temp < 23) {
-			blue = 255;
-			green = 145 + (temp * 5);
-			red = 145;
-		}
-		else if (temp >= 23 && temp < 46) {
-			blue = 255 - (temp * 5) % 115;
-			green = 255;
-			red = 145;
-		}
-		else if (temp >= 46 && temp < 69) {
-			blue = 100;
-			green = 255;
-			red = 145 + (temp * 5) % 115;
-		}
-		else if (temp >= 69 && temp < 92) {
-			blue = 50;
-			green = 255 - (temp * 5) % 115;
-			red = 255;
-		}
-		else {
-			blue = 0;
-			green = 145 - (temp * 10) % 115;
-			red = 255;
-		}
-		
-		return new Color(red, green, blue);
-	}
-	
-	/**
-	 * Create the colored overlay of cells to represent the heating of the planet
-	 * @param cells The converted simulation data
+	 * Calculates the palette index of each cell on the earth model, which is
+	 * all that is needed to tell whether a cell's color changed
+	 * @param state The simulation state holding the cell temperatures
+	 * @param drawnCols Number of cells drawn across
+	 * @param drawnRows Number of cells drawn down
+	 * @param stride Number of grid cells drawn as one cell in each direction
+	 * @return Palette indices row by row, reused by the next frame
 	 */
-	private void generateNextMapImage(DataCell[][] cells) {
-		
-		BufferedImage nextImage = new BufferedImage(mapCanvasWidth, mapCanvasHeight, BufferedImage.TYPE_4BYTE_ABGR);
-		Graphics2D graphics = null;
-		Dimension cellDimensions = calculateCellDimension();
-		Color[][] colors = calculateColors(cells);
-		try{
-			graphics = nextImage.createGraphics();		
-			
-			//set transparent to use as overlay
-			graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
-			
-			//create rectangle primitives for each cell
-			int currentXPixel = 0;
-			int currentYPixel;
-			for(int i = 0; i < this.cols; i++){
-				currentYPixel = 0;
-				for(int j = 0; j < this.rows; j++){
-					graphics.setColor(colors[i][j]);
-					graphics.fillRect(currentXPixel, currentYPixel, cellDimensions.width, cellDimensions.height);
-					currentYPixel += cellDimensions.height;
-				}
-				currentXPixel += cellDimensions.width;
+	private int[] calculateColorIndices(StateView state, int drawnCols, int drawnRows, int stride) {
+		if(cellIndices.length != drawnCols * drawnRows)
+			cellIndices = new int[drawnCols * drawnRows];
+		for(int j = 0; j < drawnRows; j++){
+			int row = j * drawnCols;
+			for(int i = 0; i < drawnCols; i++){
+				cellIndices[row + i] = palette.indexOf(state.getTemperature(i * stride, j * stride));
 			}
-			
-			this.temperatureMapImage = nextImage;
-		}
-		finally{
-			if(graphics != null)
-				graphics.dispose();
 		}
-	}
-	
-	/**
-	 * Creates a transparent overlay image containing a single yellow line representing the current longitude of the sun
-	 * @param solarLongitude The current longitude of the sun
-	 */
-	private void generateSolarOverlayImage(double solarLongitude) {
-		Point p = calculateSolarPoint(solarLongitude);
-		
-		BufferedImage nextImage = new BufferedImage(mapCanvasWidth, mapCanvasHeight, BufferedImage.TYPE_4BYTE_ABGR);
 		
-		Graphics2D graphics = null;
-		try{
-				graphics = nextImage.createGraphics();
-				graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
-				graphics.setColor(Color.YELLOW);
-				graphics.setStroke(new BasicStroke(10));
-				graphics.drawLine(p.x, 0, p.x, mapCanvasHeight);
-			
-				this.solarOverlay = nextImage;
-		}
-		finally{
-			if(graphics != null)
-				graphics.dispose();
-		}
+		return cellIndices;
 	}
 	
 	/**
-	 * Combines the overlay images into a single image, which is placed on top of the mapImage
-	 * This creates a brand new image that is set to compositeMap variable for the View to pull
+	 * Draws the map, the colored cells representing the heating of the planet and a
+	 * yellow line at the current longitude of the sun into the back frame of compositeMaps.
+	 * Only the cells whose color changed since the frame was last drawn, and the solar
+	 * line's old and new columns, are redrawn.  It is published for the View to pull once
+	 * complete, along with the regions that changed since the last frame published.
 	 * If for some reason the underlying map cannot be located it will attempt to display without it
+	 * @param state The converted simulation data
 	 */
-	private void generateCompositeMapImage() {
-		BufferedImage nextImage = new BufferedImage(mapCanvasWidth, mapCanvasHeight, BufferedImage.TYPE_4BYTE_ABGR);
-		Graphics2D graphics = null;
-		boolean useMap = true;
+	private void generateCompositeMapImage(StateView state) {
+		MapFrame nextFrame = compositeMaps.getBack(mapCanvasWidth, mapCanvasHeight);
 		
 		try{
-			if(mapImage == null || this.rescaleMap )
+			if(mapImage == null || this.rescaleMap ) {
 				mapImage = loadAndScaleMapImage();
+				compositor.setBase(mapImage);
+			}
 		}
 		catch(IOException ex){
 			ex.printStackTrace();
-			useMap = false;
+			compositor.setBase(null);
 		}
 		
-		try{
-			
-			graphics = nextImage.createGraphics();			
-			
-			graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
-			if(useMap)
-				graphics.drawImage(mapImage, 0, 0, null);
-			
-			graphics.drawImage(this.temperatureMapImage, 0, 0, null);
-			graphics.drawImage(this.solarOverlay, 0, 0, null);
-			
-			this.compositeMap = nextImage;
-		}
-		finally{
-			if(graphics != null)
-				graphics.dispose();
-		}
+		int stride = calculateCellStride();
+		Dimension cellDimensions = calculateCellDimension(stride);
+		int drawnCols = (this.cols + stride - 1) / stride;
+		int drawnRows = (this.rows + stride - 1) / stride;
+		int[] indices = calculateColorIndices(state, drawnCols, drawnRows, stride);
+		Point p = calculateSolarPoint(state.getSunLongitude());
+		
+		//the last frame published is never the back frame, so it still holds what the view was told about
+		if(lastPublished == null || lastPublished.image.getWidth() != mapCanvasWidth || lastPublished.image.getHeight() != mapCanvasHeight)
+			publishDirty = null;
+		else
+			publishDirty = compositor.changes(lastPublished, indices, drawnCols, drawnRows, cellDimensions.width, cellDimensions.height, p.x);
+		if(publishDirty != null)
+			publishDirty = TripleBuffer.bounded(publishDirty);
+		compositor.draw(nextFrame, indices, drawnCols, drawnRows, cellDimensions.width, cellDimensions.height, p.x);
 	}
 
 	/** Loads the underlying map from disk from and scales it appropriately
@@ -490,8 +411,11 @@ public class DisplayModel extends Observable implements Runnable, ActionListener
 		Graphics2D scaledImageGraphics = null;
 		try{
 			ClassLoader cl = getClass().getClassLoader();
-			File file = new File(cl.getResource("world-map.jpg").getFile());
-			BufferedImage map = ImageIO.read(file);
+			//read through the URL so the map is also found inside a jar
+			URL resource = cl.getResource("world-map.jpg");
+			if(resource == null)
+				throw new IOException("world-map.jpg is not on the classpath");
+			BufferedImage map = ImageIO.read(resource);
 			scaledImageGraphics = scaledMap.createGraphics();
 			
 			scaledImageGraphics.drawImage(map, 0, 0, mapCanvasWidth, mapCanvasHeight, null);
@@ -554,32 +478,72 @@ public class DisplayModel extends Observable implements Runnable, ActionListener
 	}
 	
 	/**
-	 * Used by the view to get the next image for display
+	 * Used by the view to get the next image for display.  The image is not drawn
+	 * into again until the next call, so it can be shown until then.
 	 * @return BufferedImage representing the work of the Presentation
 	 */
-	public synchronized BufferedImage getMapImage() {
-		return this.compositeMap;
+	public BufferedImage getMapImage() {
+		MapFrame frame = compositeMaps.takeFront();
+		return frame == null ? null : frame.image;
+	}
+	
+	/**
+	 * Used by the view after getMapImage to repaint only what changed.
+	 * @return Regions of the image that changed since the image returned by the
+	 * call to getMapImage before the last one, or null if all of it may have changed
+	 */
+	public List<Rectangle> getMapDirtyRegion() {
+		return compositeMaps.getFrontDirty();
+	}
+	
+	/**
+	 * @return Latency from each simulation state being produced to its image being ready
+	 */
+	public LatencyRecorder getStepToImageLatency() {
+		return stepToImageLatency;
+	}
+	
+	/**
+	 * @return Number of frames skipped because their sequence number was not newer than the last one shown
+	 */
+	public long getStaleFrames() {
+		return staleFrames;
+	}
+	
+	/**
+	 * @return Number of frames whose images were discarded because the frame was rewritten while rendering
+	 */
+	public long getTornFrames() {
+		return tornFrames;
 	}
 	
 	/**
 	 * Sets the stop flag for when running threaded.
 	 */
 	public synchronized void stop() {
-		isCancelled = true;
+		lifecycle.cancel();
 	}
 	
 	/**
 	 * Sets the pause flag when running threaded
 	 */
 	public synchronized void pause() {
-		pauseRequested = true;
+		lifecycle.pause();
 	}
 	
 	/**
 	 * If already paused, releases the pause flag
 	 */
 	public synchronized void resume() {
-		pauseRequested = false;
+		lifecycle.resume();
+	}
+	
+	/**
+	 * Shares a lifecycle with the simulation.  Must be set before the model starts running.
+	 * @param lifecycle Run state for the next run
+	 */
+	public synchronized void setLifecycle(Lifecycle lifecycle) {
+		this.lifecycle = lifecycle;
 	}
 	
 	/**
@@ -642,11 +606,11 @@ public class DisplayModel extends Observable implements Runnable, ActionListener
 
 	/**
 	 * Sets the grid spacing
-	 * @param gridSpacing
+	 * @param gridSpacing Degrees per cell, which may be fractional
 	 */
-	public void setGridSpacing(int gridSpacing) {
+	public void setGridSpacing(double gridSpacing) {
 		this.gridSpacing = gridSpacing;
-		this.rows = 180 / this.gridSpacing;
-		this.cols = 360 / this.gridSpacing;
+		this.rows = SimulationGrid.cellCount(180, this.gridSpacing);
+		this.cols = SimulationGrid.cellCount(360, this.gridSpacing);
 	}
 }
@@ -0,0 +1,217 @@
+package EarthPresentation;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+
+import core.Palette;
+
+/**
+ * Draws frames of the map, writing each pixel once and only redrawing what
+ * changed.
+ *
+ * A frame used to be the scaled world map, the temperature cells and the
+ * solar line each drawn into an image of its own, then drawn over each other
+ * into a fourth with an AlphaComposite of SRC_OVER at 0.5.  Here each pixel
+ * of the frame is written once: the map pixel, already blended and cached
+ * until the canvas is rescaled, has the color of its cell blended over it,
+ * then the solar line if it falls in the line's columns.  The blending uses
+ * AlphaMath, so frames match the ones drawn the old way exactly.
+ *
+ * A frame remembers the palette index of every cell it was drawn with, so
+ * when it is drawn again only the cells whose index changed are redrawn,
+ * along with the columns the solar line left and moved to.
+ */
+final class MapCompositor {
+
+	//extra alpha of the composite the map, cells and solar line were drawn with, 0.5
+	static final int CELL_ALPHA = 128;
+	//width in pixels of the solar line, centered on its column as BasicStroke draws it
+	static final int SOLAR_LINE_WIDTH = 10;
+	//solar line pixel, yellow drawn onto a transparent pixel at the cell alpha
+	private static final int SOLAR_PIXEL = AlphaMath.over(0, 0xffffff00, CELL_ALPHA);
+
+	//cell pixel of each palette index, blended onto a transparent pixel
+	private final int[] cellPixels;
+
+	//map pixels blended onto a transparent frame, or null to draw without the map
+	private int[] base;
+	private int baseWidth;
+	private int baseHeight;
+	//changed whenever the map does, so frames drawn over the old one are redrawn in full
+	private int baseVersion;
+
+	//layout of the frame being drawn
+	private int[] pixels;
+	private int width;
+	private int height;
+	private int[] map;
+	private int[] cells;
+	private int columns;
+	private int cellWidth;
+	private int cellHeight;
+	private int cellsRight;
+	private int cellsBottom;
+	private int solarLeft;
+	private int solarRight;
+
+	MapCompositor(Palette palette) {
+		cellPixels = new int[palette.size()];
+		for(int i = 0; i < cellPixels.length; i++)
+			cellPixels[i] = AlphaMath.over(0, palette.colorAt(i), CELL_ALPHA);
+	}
+
+	/**
+	 * Caches the map to draw under the cells.  Called only when the map is
+	 * loaded or rescaled.
+	 * @param map The map scaled to the canvas, or null to draw without it
+	 */
+	void setBase(BufferedImage map) {
+		baseVersion++;
+		if(map == null) {
+			base = null;
+			return;
+		}
+		baseWidth = map.getWidth();
+		baseHeight = map.getHeight();
+		base = map.getRGB(0, 0, baseWidth, baseHeight, null, 0, baseWidth);
+		for(int i = 0; i < base.length; i++)
+			base[i] = AlphaMath.over(0, base[i], CELL_ALPHA);
+	}
+
+	int getBaseVersion() {
+		return baseVersion;
+	}
+
+	/**
+	 * Brings a frame up to date.  Cell column i and row j cover the cellWidth
+	 * by cellHeight block starting at pixel (i * cellWidth, j * cellHeight).
+	 * @param frame Frame with a TYPE_INT_ARGB image, whatever it holds
+	 * @param cells Palette index of each cell, row by row
+	 * @param solarX Column the solar line is centered on
+	 * @return Number of pixels written
+	 */
+	long draw(MapFrame frame, int[] cells, int columns, int rows, int cellWidth, int cellHeight, int solarX) {
+		List<Rectangle> changed = changes(frame, cells, columns, rows, cellWidth, cellHeight, solarX);
+
+		BufferedImage image = frame.image;
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		width = image.getWidth();
+		height = image.getHeight();
+		map = base != null && baseWidth == width && baseHeight == height ? base : null;
+		this.cells = cells;
+		this.columns = columns;
+		this.cellWidth = cellWidth;
+		this.cellHeight = cellHeight;
+		boolean hasCells = columns > 0 && rows > 0 && cellWidth > 0 && cellHeight > 0;
+		cellsRight = hasCells ? Math.min(width, columns * cellWidth) : 0;
+		cellsBottom = hasCells ? Math.min(height, rows * cellHeight) : 0;
+		solarLeft = solarX - SOLAR_LINE_WIDTH / 2;
+		solarRight = solarLeft + SOLAR_LINE_WIDTH;
+
+		long written = 0;
+		if(changed == null) {
+			drawRegion(0, 0, width, height);
+			written = (long) width * height;
+		}
+		else {
+			for(Rectangle region : changed) {
+				drawRegion(region.x, region.y, region.x + region.width, region.y + region.height);
+				written += (long) region.width * region.height;
+			}
+		}
+
+		if(frame.cells.length != cells.length)
+			frame.cells = new int[cells.length];
+		System.arraycopy(cells, 0, frame.cells, 0, cells.length);
+		frame.columns = columns;
+		frame.rows = rows;
+		frame.cellWidth = cellWidth;
+		frame.cellHeight = cellHeight;
+		frame.solarX = solarX;
+		frame.baseVersion = baseVersion;
+		frame.drawn = true;
+
+		this.pixels = null;
+		this.map = null;
+		this.cells = null;
+		return written;
+	}
+
+	/**
+	 * Finds the regions of a frame that differ from what drawing these cells
+	 * and solar line would give.  Changed cells next to each other in a row
+	 * are merged into one rectangle.
+	 * @param frame A frame drawn before, or null
+	 * @return The regions, clipped to the frame, or null if all of it differs
+	 */
+	List<Rectangle> changes(MapFrame frame, int[] cells, int columns, int rows, int cellWidth, int cellHeight, int solarX) {
+		if(frame == null || !frame.matches(columns, rows, cellWidth, cellHeight, baseVersion))
+			return null;
+
+		int width = frame.image.getWidth();
+		int height = frame.image.getHeight();
+		Rectangle bounds = new Rectangle(0, 0, width, height);
+		List<Rectangle> changed = new ArrayList<Rectangle>();
+		int[] drawn = frame.cells;
+		for(int j = 0; j < rows && j * cellHeight < height; j++) {
+			int row = j * columns;
+			int i = 0;
+			while(i < columns && i * cellWidth < width) {
+				if(drawn[row + i] == cells[row + i]) {
+					i++;
+					continue;
+				}
+				int first = i;
+				while(i < columns && drawn[row + i] != cells[row + i])
+					i++;
+				changed.add(new Rectangle(first * cellWidth, j * cellHeight, (i - first) * cellWidth, cellHeight).intersection(bounds));
+			}
+		}
+
+		if(frame.solarX != solarX) {
+			int half = SOLAR_LINE_WIDTH / 2;
+			Rectangle left = new Rectangle(frame.solarX - half, 0, SOLAR_LINE_WIDTH, height).intersection(bounds);
+			Rectangle right = new Rectangle(solarX - half, 0, SOLAR_LINE_WIDTH, height).intersection(bounds);
+			if(!left.isEmpty())
+				changed.add(left);
+			if(!right.isEmpty())
+				changed.add(right);
+		}
+		return changed;
+	}
+
+	/*
+	 * Draws the pixels from (left, top) up to but not including (right, bottom).
+	 */
+	private void drawRegion(int left, int top, int right, int bottom) {
+		for(int y = top; y < bottom; y++) {
+			int line = y * width;
+			int x = left;
+			if(y < cellsBottom) {
+				int row = (y / cellHeight) * columns;
+				int end = Math.min(right, cellsRight);
+				while(x < end) {
+					int i = x / cellWidth;
+					int cell = cellPixels[cells[row + i]];
+					int runEnd = Math.min(end, (i + 1) * cellWidth);
+					for(; x < runEnd; x++) {
+						int pixel = AlphaMath.over(map == null ? 0 : map[line + x], cell, CELL_ALPHA);
+						if(x >= solarLeft && x < solarRight)
+							pixel = AlphaMath.over(pixel, SOLAR_PIXEL, CELL_ALPHA);
+						pixels[line + x] = pixel;
+					}
+				}
+			}
+			//no cell here, so the map and the solar line only
+			for(; x < right; x++) {
+				int pixel = map == null ? 0 : map[line + x];
+				if(x >= solarLeft && x < solarRight)
+					pixel = AlphaMath.over(pixel, SOLAR_PIXEL, CELL_ALPHA);
+				pixels[line + x] = pixel;
+			}
+		}
+	}
+}
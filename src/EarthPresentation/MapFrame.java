@@ -0,0 +1,40 @@
+package EarthPresentation;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * An image the presentation draws frames into, along with what was drawn in
+ * it last, so the next frame drawn into it only has to redraw what changed.
+ */
+final class MapFrame {
+
+	final BufferedImage image;
+
+	//palette index of each drawn cell, row by row, when drawn is set
+	int[] cells = new int[0];
+	int columns;
+	int rows;
+	int cellWidth;
+	int cellHeight;
+	int solarX;
+	//version of the compositor's map the frame was drawn over
+	int baseVersion;
+	boolean drawn;
+
+	MapFrame(BufferedImage image) {
+		this.image = image;
+	}
+
+	/**
+	 * @return true if the frame was drawn with the same layout of cells and
+	 * the same map, so only changed cells and the solar line need redrawing
+	 */
+	boolean matches(int columns, int rows, int cellWidth, int cellHeight, int baseVersion) {
+		return drawn
+				&& this.columns == columns
+				&& this.rows == rows
+				&& this.cellWidth == cellWidth
+				&& this.cellHeight == cellHeight
+				&& this.baseVersion == baseVersion;
+	}
+}
@@ -24,12 +24,14 @@ import EarthSim.Simulation;
 
 import core.Config;
 import core.InitiativeEnum;
+import core.Lifecycle;
+import core.RunScope;
 import core.ThreadedEnum;
 
 public class MasterGui {
 
 	private JFrame frame;
-	private int spacingValue;
+	private double spacingValue;
 	private int simulationTime;
 	private int refreshRate;
 	private JSlider spacingSlider;
@@ -44,6 +46,13 @@ public class MasterGui {
 	private DisplayModel model;
 	
 	private Simulation simulation;
+	//run state shared by the simulation and model of the current run
+	private Lifecycle lifecycle;
+	//owns the threads of the current run, so stopping joins them all
+	private RunScope scope;
+	
+	//how long to wait for the threads of a stopped run at each stage
+	private static final long STOP_TIMEOUT_MILLIS = 2000;
 
 	/**
 	 * Launch the application.
@@ -111,87 +120,99 @@ public class MasterGui {
 		
 		spacingSlider = new JSlider();
 		Hashtable<Integer, JLabel> spacingTicks = new Hashtable<Integer, JLabel>();
-		spacingTicks.put(1, new JLabel("1"));
-		spacingTicks.put(2, new JLabel("2"));
-		spacingTicks.put(3, new JLabel("3"));
-		spacingTicks.put(4, new JLabel("4"));
-		spacingTicks.put(5, new JLabel("5"));
-		spacingTicks.put(6, new JLabel("6"));
-		spacingTicks.put(7, new JLabel("9"));
-		spacingTicks.put(8, new JLabel("10"));
-		spacingTicks.put(9, new JLabel("12"));
-		spacingTicks.put(10, new JLabel("15"));
-		spacingTicks.put(11, new JLabel("18"));
-		spacingTicks.put(12, new JLabel("20"));
-		spacingTicks.put(13, new JLabel("30"));
-		spacingTicks.put(14, new JLabel("36"));
-		spacingTicks.put(15, new JLabel("45"));
-		spacingTicks.put(16, new JLabel("60"));
-		spacingTicks.put(17, new JLabel("90"));
-		spacingTicks.put(18, new JLabel("180"));
+		spacingTicks.put(1, new JLabel("0.1"));
+		spacingTicks.put(2, new JLabel("0.25"));
+		spacingTicks.put(3, new JLabel("0.5"));
+		spacingTicks.put(4, new JLabel("1"));
+		spacingTicks.put(5, new JLabel("2"));
+		spacingTicks.put(6, new JLabel("3"));
+		spacingTicks.put(7, new JLabel("4"));
+		spacingTicks.put(8, new JLabel("5"));
+		spacingTicks.put(9, new JLabel("6"));
+		spacingTicks.put(10, new JLabel("9"));
+		spacingTicks.put(11, new JLabel("10"));
+		spacingTicks.put(12, new JLabel("12"));
+		spacingTicks.put(13, new JLabel("15"));
+		spacingTicks.put(14, new JLabel("18"));
+		spacingTicks.put(15, new JLabel("20"));
+		spacingTicks.put(16, new JLabel("30"));
+		spacingTicks.put(17, new JLabel("36"));
+		spacingTicks.put(18, new JLabel("45"));
+		spacingTicks.put(19, new JLabel("60"));
+		spacingTicks.put(20, new JLabel("90"));
+		spacingTicks.put(21, new JLabel("180"));
 		spacingSlider.setLabelTable(spacingTicks);
 		spacingSlider.setMinimum(1);
-		spacingSlider.setMaximum(18);
+		spacingSlider.setMaximum(21);
 		spacingSlider.setSnapToTicks(true);
 		spacingSlider.setPaintLabels(true);
-		spacingSlider.setValue(10);
+		spacingSlider.setValue(13);
 		spacingSlider.addChangeListener(new ChangeListener(){
 			
 			@Override
 			public void stateChanged(ChangeEvent arg0) {
 				switch(spacingSlider.getValue()){
 					case 1:
-						spacingValue = 1;
+						spacingValue = 0.1;
 						break;
 					case 2:
-						spacingValue = 2;
+						spacingValue = 0.25;
 						break;
 					case 3:
-						spacingValue = 3;
+						spacingValue = 0.5;
 						break;
 					case 4:
-						spacingValue = 4;
+						spacingValue = 1;
 						break;
 					case 5:
-						spacingValue = 5;
+						spacingValue = 2;
 						break;
 					case 6:
-						spacingValue = 6;
+						spacingValue = 3;
 						break;
 					case 7:
-						spacingValue = 9;
+						spacingValue = 4;
 						break;
 					case 8:
-						spacingValue = 10;
+						spacingValue = 5;
 						break;
 					case 9:
-						spacingValue = 12;
+						spacingValue = 6;
 						break;
 					case 10:
-						spacingValue = 15;
+						spacingValue = 9;
 						break;
 					case 11:
-						spacingValue = 18;
+						spacingValue = 10;
 						break;
 					case 12:
-						spacingValue = 20;
+						spacingValue = 12;
 						break;
 					case 13:
-						spacingValue = 30;
+						spacingValue = 15;
 						break;
 					case 14:
-						spacingValue = 36;
+						spacingValue = 18;
 						break;
 					case 15:
-						spacingValue = 45;
+						spacingValue = 20;
 						break;
 					case 16:
-						spacingValue = 60;
+						spacingValue = 30;
 						break;
 					case 17:
-						spacingValue = 90;
+						spacingValue = 36;
 						break;
 					case 18:
+						spacingValue = 45;
+						break;
+					case 19:
+						spacingValue = 60;
+						break;
+					case 20:
+						spacingValue = 90;
+						break;
+					case 21:
 						spacingValue = 180;
 						break;
 				}
@@ -275,6 +296,12 @@ public class MasterGui {
 					pauseBtn.setEnabled(true);
 					
 					simulation = new Simulation(spacingValue, simulationTime);
+					lifecycle = new Lifecycle(Config.getInstance());
+					scope = new RunScope(Config.getInstance().getSettings().useVirtualThreads(), lifecycle);
+					simulation.setLifecycle(lifecycle);
+					if(Config.getInstance().getParallelism() > 1)
+						simulation.setExecutor(scope.newExecutor(Config.getInstance().getParallelism()));
+					model.setLifecycle(lifecycle);
 					model.setRefreshRate(refreshRate);
 					model.setGridSpacing(spacingValue);
 					simulate();
@@ -327,21 +354,19 @@ public class MasterGui {
 	
 	private void endSimulation() {
 		Config config = Config.getInstance();
-		if(config.getThreadingFlags().contains(ThreadedEnum.PRESENTATION))
-			model.stop();
-		if(config.getThreadingFlags().contains(ThreadedEnum.SIMULATION))
-			simulation.cancel();
+		//wakes and stops both components wherever they are waiting, then joins their threads
+		if(!scope.close(STOP_TIMEOUT_MILLIS))
+			System.out.println("Threads of the stopped run did not finish in time");
+		if(scope.getFailure() != null)
+			scope.getFailure().printStackTrace();
 		
-		config.getBuffer().clear();
+		config.clearBuffer();
 	}
 	
 	private void pauseHandle(boolean resume) {
 		Config config = Config.getInstance();
 		if(resume){
-			if(config.getThreadingFlags().contains(ThreadedEnum.PRESENTATION))
-				model.resume();
-			if(config.getThreadingFlags().contains(ThreadedEnum.SIMULATION))
-				simulation.resume();
+			lifecycle.resume();
 			
 			if(!config.getThreadingFlags().equals(EnumSet.allOf(ThreadedEnum.class)))
 				simulate();
@@ -350,16 +375,14 @@ public class MasterGui {
 		}
 		else{
 			isPaused = true;
-			if(config.getThreadingFlags().contains(ThreadedEnum.PRESENTATION))
-				model.pause();
-			if(config.getThreadingFlags().contains(ThreadedEnum.SIMULATION))
-				simulation.pause();
+			//threaded components park at their next check
+			lifecycle.pause();
 		}	
 	}
 	
 	private void simulate(){
 		Config config = Config.getInstance();
-		config.getBuffer().clear();
+		config.clearBuffer();
 		boolean resuming = false;
 		
 		//set non initiative objects
@@ -375,10 +398,8 @@ public class MasterGui {
 		}
 		
 		if(config.getThreadingFlags().equals(EnumSet.allOf(ThreadedEnum.class))){
-			Thread sim = new Thread(simulation);
-			Thread presentation = new Thread(model);
-			sim.start();
-			presentation.start();
+			scope.fork("simulation", simulation);
+			scope.fork("presentation", model);
 		}
 		else if(config.getThreadingFlags().equals(EnumSet.noneOf(ThreadedEnum.class))){					
 			while(isRunning) {
@@ -399,9 +420,8 @@ public class MasterGui {
 			}
 		}
 		else if(config.getThreadingFlags().equals(EnumSet.of(ThreadedEnum.PRESENTATION))) {
-			Thread presentation = new Thread(model);
 			if(!resuming)
-				presentation.start();
+				scope.fork("presentation", model);
 			if(!config.getInitiative().equals(InitiativeEnum.PRESENTATION)){
 				while(isRunning){
 					if(isPaused)
@@ -412,9 +432,8 @@ public class MasterGui {
 			}
 		}
 		else if(config.getThreadingFlags().equals(EnumSet.of(ThreadedEnum.SIMULATION))) {
-			Thread sim = new Thread(simulation);
 			if(!resuming)
-				sim.start();
+				scope.fork("simulation", simulation);
 			if(!config.getInitiative().equals(InitiativeEnum.SIMULATION)) {
 				while(isRunning){
 					if(isPaused)
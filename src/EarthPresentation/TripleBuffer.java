@@ -0,0 +1,120 @@
+package EarthPresentation;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Three frames the presentation draws into, reused from frame to frame, so
+ * the renderer and the view never wait for each other and the view never sees
+ * a half drawn frame.
+ *
+ * The renderer draws into the back frame and publishes it, which swaps it
+ * with the ready frame.  The view takes the ready frame when there is a newer
+ * one, swapping it with the front frame it showed before, and keeps showing
+ * the front frame until it takes another.  A frame is only reallocated when
+ * the renderer asks for a different size.
+ *
+ * Each published frame comes with the regions that changed since the one
+ * published before it.  When the view skips frames the regions are combined,
+ * so the view always learns everything that changed since the frame it last
+ * took.
+ */
+final class TripleBuffer {
+
+	//most dirty rectangles kept before they are merged into their bounds
+	private static final int MAX_DIRTY_RECTANGLES = 256;
+
+	private final int type;
+
+	//drawn by the renderer, never seen by the view
+	private MapFrame back;
+	//last published frame and what changed since the front one, guarded by this
+	private MapFrame ready;
+	private boolean fresh;
+	private List<Rectangle> readyDirty;
+	//shown by the view, never drawn by the renderer
+	private MapFrame front;
+	private List<Rectangle> frontDirty;
+
+	/**
+	 * @param type BufferedImage type of the images
+	 */
+	TripleBuffer(int type) {
+		this.type = type;
+	}
+
+	/**
+	 * Renderer only.  The frame still holds whatever was drawn into it last,
+	 * if anything.
+	 * @return The frame to draw the next frame into
+	 */
+	MapFrame getBack(int width, int height) {
+		if(back == null || back.image.getWidth() != width || back.image.getHeight() != height)
+			back = new MapFrame(new BufferedImage(width, height, type));
+		return back;
+	}
+
+	/**
+	 * Renderer only.  Makes the back frame the newest one for the view.
+	 * @param dirty Regions that changed since the last frame published, or null for all of it
+	 */
+	synchronized void publish(List<Rectangle> dirty) {
+		MapFrame published = back;
+		back = ready;
+		ready = published;
+		//the view has not taken the one before, so it still needs those changes too
+		readyDirty = fresh ? union(readyDirty, dirty) : dirty;
+		fresh = true;
+	}
+
+	/**
+	 * View only.  The frame returned is not drawn into until the view takes
+	 * another.
+	 * @return The newest published frame, or null if none has been published
+	 */
+	synchronized MapFrame takeFront() {
+		if(fresh) {
+			MapFrame shown = front;
+			front = ready;
+			ready = shown;
+			frontDirty = readyDirty;
+			fresh = false;
+		}
+		else
+			frontDirty = Collections.emptyList();
+		return front;
+	}
+
+	/**
+	 * View only.
+	 * @return Regions that changed between the frame shown before the last
+	 * takeFront and the one it returned, or null for all of it
+	 */
+	synchronized List<Rectangle> getFrontDirty() {
+		return frontDirty;
+	}
+
+	private static List<Rectangle> union(List<Rectangle> a, List<Rectangle> b) {
+		if(a == null || b == null)
+			return null;
+		List<Rectangle> combined = new ArrayList<Rectangle>(a.size() + b.size());
+		combined.addAll(a);
+		combined.addAll(b);
+		return bounded(combined);
+	}
+
+	/**
+	 * @return The rectangles, or their bounds if there are too many to repaint one by one
+	 */
+	static List<Rectangle> bounded(List<Rectangle> dirty) {
+		if(dirty.size() <= MAX_DIRTY_RECTANGLES)
+			return dirty;
+		Rectangle bounds = new Rectangle(dirty.get(0));
+		for(Rectangle rectangle : dirty)
+			bounds.add(rectangle);
+		return Collections.singletonList(bounds);
+	}
+}
@@ -0,0 +1,11 @@
+package EarthSim;
+
+/*
+ * Convects rows [yStart, yEnd) of a temperature plane into another plane
+ * using the stencil tables of a grid geometry.  Implementations must use
+ * the same arithmetic as SimulationGrid's scalar two-plane loop, so that
+ * they give the standard kernel's results.
+ */
+interface ConvectionKernel {
+	void convectRows(GridGeometry geometry, double[] src, double[] dst, int yStart, int yEnd);
+}
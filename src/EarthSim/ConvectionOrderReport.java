@@ -0,0 +1,70 @@
+package EarthSim;
+
+import core.KernelEnum;
+
+/**
+ * Runs a grid with the sequential kernel, which convects cells in place in
+ * the original order, and one with the standard kernel, which reads every
+ * neighbor from the previous step, side by side from the same start.
+ * Reports the mean, minimum and maximum temperature of each as they go.
+ *
+ * Usage: java EarthSim.ConvectionOrderReport spacing timestep steps
+ */
+public class ConvectionOrderReport {
+
+	/* Number of progress lines printed during a run. */
+	private static final int REPORTS = 10;
+
+	public static void main(String[] args) {
+		if(args.length < 3) {
+			System.out.println("Usage: java EarthSim.ConvectionOrderReport spacing timestep steps");
+			return;
+		}
+
+		double spacing = Double.parseDouble(args[0]);
+		int timestep = Integer.parseInt(args[1]);
+		int steps = Integer.parseInt(args[2]);
+
+		SimulationGrid sequential = new SimulationGrid(spacing);
+		SimulationGrid standard = new SimulationGrid(spacing);
+		StepEngine sequentialEngine = new StepEngine(1, KernelEnum.SEQUENTIAL);
+		StepEngine standardEngine = new StepEngine(1, KernelEnum.STANDARD);
+
+		System.out.printf("Grid %dx%d, timestep %d min\n", standard.mWidth, standard.mHeight, timestep);
+		System.out.printf("%8s %32s %32s %14s\n", "", "sequential (mean/min/max K)", "standard (mean/min/max K)", "max |diff| K");
+
+		int runningTime = 0;
+		int interval = Math.max(1, steps / REPORTS);
+		for(int step = 1; step <= steps; step++) {
+			double sunLongitude = 180 - ((runningTime + 720) % 1440) * 360 / 1440;
+			sequentialEngine.step(sequential, sunLongitude);
+			standardEngine.step(standard, sunLongitude);
+			runningTime += timestep;
+
+			if(step % interval == 0 || step == steps) {
+				double[] a = summarize(sequential);
+				double[] b = summarize(standard);
+				System.out.printf("%8d %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f %14.6g\n",
+						step, a[0], a[1], a[2], b[0], b[1], b[2], DriftReport.compare(sequential, standard)[0]);
+			}
+		}
+	}
+
+	/**
+	 * @return The mean, minimum and maximum temperature of the grid, in Kelvin
+	 */
+	public static double[] summarize(SimulationGrid grid) {
+		double sum = 0;
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for(int y = 0; y < grid.mHeight; y++) {
+			for(int x = 0; x < grid.mWidth; x++) {
+				double temperature = grid.getTemperature(x, y);
+				sum += temperature;
+				min = Math.min(min, temperature);
+				max = Math.max(max, temperature);
+			}
+		}
+		return new double[] {sum / (grid.mWidth * grid.mHeight), min, max};
+	}
+}
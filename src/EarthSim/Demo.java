@@ -10,7 +10,13 @@ public class Demo {
     public static void main(String[] args) {
     	try{
     		Config.buildGlobalConfig(args);
-    		MasterGui.start();
+    		Config config = Config.getInstance();
+    		if(config.isHeadless()) {
+    			System.setProperty("java.awt.headless", "true");
+    			new HeadlessRunner(config.getSpacing(), config.getTimestep(), config.getStepCount()).run();
+    		}
+    		else
+    			MasterGui.start();
     	}
     	catch(IllegalArgumentException ex) {
     		System.out.print("Could not start application: ");
@@ -23,10 +29,19 @@ public class Demo {
     public static String getSyntaxMessage() {
     	StringBuilder sb = new StringBuilder();
     	sb.append("Allowed arguments are as follows\n:");
-    	sb.append("java EarthSim.Demo [-s] [-p] [-r|-t] [-b #]");
+    	sb.append("java EarthSim.Demo [-s] [-p] [-r|-t] [-b #|auto] [-l] [-e #|#m] [-j #] [-v] [-k sequential|standard|fused|vector] [-f] [-C file] [-H [-g #] [-m #] [-n #]]");
     	sb.append("-r & -t sent initiative.  They cannot BOTH be used");
     	sb.append("-s and -p are used to indicate threading.  We recommend that both of these are set");
     	sb.append("-b # is optional to set a non-default buffer size. (Default is 1)");
+    	sb.append("-b auto resizes the buffer while running from the measured simulation and presentation rates (requires -s and -p)");
+    	sb.append("-l keeps only the newest state in the buffer, dropping unread ones so the simulation never waits for the display (-b has no effect)");
+    	sb.append("-e # publishes a state every # steps, or every # simulated minutes with -e #m. (Default is every step)");
+    	sb.append("-j # is optional to set how many threads process the standard, fused and vector kernels' steps. (Default is 1)");
+    	sb.append("-v runs the threaded components and step workers on virtual threads (Java 21+, otherwise platform threads)");
+    	sb.append("-k selects the step kernel: sequential (the original model, convecting cells in place, single threaded), or standard, fused (single pass) and vector (requires jdk.incubator.vector), which read every neighbor from the previous step so a step can be split over -j threads.  The three give the same results as each other but settle at different temperatures from sequential. (Default is sequential)");
+    	sb.append("-f stores and processes temperatures in single precision (float) to halve memory traffic");
+    	sb.append("-C file draws temperatures with the palette in file, such as resources/palettes/grayscale.txt");
+    	sb.append("-H runs without a display: -g # grid spacing (Default is 15), -m # timestep in minutes (Default is 1), -n # steps (Default is 1440)");
     	return sb.toString();
     }
    
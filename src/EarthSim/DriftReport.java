@@ -0,0 +1,90 @@
+package EarthSim;
+
+import core.KernelEnum;
+import core.PrecisionEnum;
+
+/**
+ * Runs a double precision and a single precision grid side by side and
+ * reports how far the single precision temperatures drift from the double
+ * precision ones, along with the throughput of each.
+ *
+ * Both grids use the same kernel, so the drift is the precision's alone.
+ * The default is the sequential kernel, the original model.  The standard,
+ * fused and vector kernels follow the two-plane scheme, which settles at
+ * different temperatures, so their drift is measured against a different
+ * double precision result.
+ *
+ * Usage: java EarthSim.DriftReport spacing timestep steps [sequential|standard|fused|vector]
+ */
+public class DriftReport {
+
+	/* Number of progress lines printed during a run. */
+	private static final int REPORTS = 10;
+
+	public static void main(String[] args) {
+		if(args.length < 3) {
+			System.out.println("Usage: java EarthSim.DriftReport spacing timestep steps [sequential|standard|fused|vector]");
+			return;
+		}
+
+		double spacing = Double.parseDouble(args[0]);
+		int timestep = Integer.parseInt(args[1]);
+		int steps = Integer.parseInt(args[2]);
+		KernelEnum kernel = KernelEnum.SEQUENTIAL;
+		if(args.length > 3)
+			kernel = KernelEnum.valueOf(args[3].toUpperCase());
+
+		SimulationGrid reference = new SimulationGrid(spacing, PrecisionEnum.DOUBLE);
+		SimulationGrid single = new SimulationGrid(spacing, PrecisionEnum.FLOAT);
+		StepEngine engine = new StepEngine(1, kernel);
+
+		System.out.printf("Grid %dx%d, timestep %d min, kernel %s\n",
+				reference.mWidth, reference.mHeight, timestep, engine.getKernel());
+		System.out.printf("%8s %14s %14s\n", "step", "max |diff| K", "mean |diff| K");
+
+		long doubleNanos = 0;
+		long floatNanos = 0;
+		int runningTime = 0;
+		int interval = Math.max(1, steps / REPORTS);
+		for(int step = 1; step <= steps; step++) {
+			double sunLongitude = 180 - ((runningTime + 720) % 1440) * 360 / 1440;
+
+			long start = System.nanoTime();
+			engine.step(reference, sunLongitude);
+			long middle = System.nanoTime();
+			engine.step(single, sunLongitude);
+			floatNanos += System.nanoTime() - middle;
+			doubleNanos += middle - start;
+
+			runningTime += timestep;
+
+			if(step % interval == 0 || step == steps) {
+				double[] drift = compare(reference, single);
+				System.out.printf("%8d %14.6g %14.6g\n", step, drift[0], drift[1]);
+			}
+		}
+
+		System.out.printf("double: %.1f steps/sec, float: %.1f steps/sec, speedup %.2fx\n",
+				steps * 1e9 / doubleNanos,
+				steps * 1e9 / floatNanos,
+				(double) doubleNanos / floatNanos);
+	}
+
+	/**
+	 * Compares the temperatures of two grids with the same dimensions.
+	 * @return The maximum and mean absolute difference, in Kelvin
+	 */
+	public static double[] compare(SimulationGrid a, SimulationGrid b) {
+		double max = 0;
+		double sum = 0;
+		for(int y = 0; y < a.mHeight; y++) {
+			for(int x = 0; x < a.mWidth; x++) {
+				double diff = Math.abs(a.getTemperature(x, y) - b.getTemperature(x, y));
+				sum += diff;
+				if(diff > max)
+					max = diff;
+			}
+		}
+		return new double[] {max, sum / (a.mWidth * a.mHeight)};
+	}
+}
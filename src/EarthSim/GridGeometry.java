@@ -0,0 +1,272 @@
+package EarthSim;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import core.Constants;
+import core.DataCell;
+
+/*
+ * Cell geometry and convection stencil tables for a grid spacing.
+ * Nothing in here changes while a simulation runs, so one instance is
+ * built per spacing and shared by every grid that uses it.
+ */
+class GridGeometry {
+	/* Geometry already built, keyed by spacing. */
+	private static final Map<Double, GridGeometry> sGeometries =
+			new HashMap<Double, GridGeometry>();
+
+	/* Get the shared geometry for a spacing, building it on first use. */
+	static synchronized GridGeometry forSpacing(double spacing) {
+		GridGeometry geometry = sGeometries.get(spacing);
+		if (geometry == null) {
+			geometry = new GridGeometry(spacing);
+			sGeometries.put(spacing, geometry);
+		}
+		return geometry;
+	}
+
+	/* Number of degrees spanned by each cell.  May be fractional. */
+	final double mSpacing;
+	/* Number of columns (longitude). */
+	final int mWidth;
+	/* Number of rows (latitude). */
+	final int mHeight;
+
+	/* Latitude of the cells in each row. */
+	final double[] mLatitudes;
+	/* Longitude of the cells in each column. */
+	final double[] mLongitudes;
+	/* Surface area of the cells in each row. */
+	final double[] mAreas;
+
+	/* Radiation terms per row.  cos(latitude) is the latitude part of the
+	 * attenuation, heating is the full-sun heating before attenuation and
+	 * cooling is the constant loss. */
+	final double[] mLatitudeCosines;
+	final double[] mHeating;
+	final double[] mCooling;
+	/* Single precision copies of the radiation terms. */
+	final float[] mFloatLatitudeCosines;
+	final float[] mFloatHeating;
+	final float[] mFloatCooling;
+
+	/* Convection weights per row.  Each one is the length of the shared
+	 * side divided by the neighbor's area and the cell's perimeter, times
+	 * the cell's area, so a new temperature is a plain weighted sum. */
+	final double[] mNorthWeights;
+	final double[] mSouthWeights;
+	final double[] mEastWeights;
+	final double[] mWestWeights;
+	/* Single precision copies of the convection weights. */
+	final float[] mFloatNorthWeights;
+	final float[] mFloatSouthWeights;
+	final float[] mFloatEastWeights;
+	final float[] mFloatWestWeights;
+
+	/* Column of the east and west neighbor of each column. */
+	final int[] mEastColumns;
+	final int[] mWestColumns;
+	/* Column of the neighbor in the same row (x).  Used for rows whose
+	 * north or south neighbor is the row directly above or below. */
+	final int[] mColumns;
+	/* Column of the neighbor across the pole (x + width / 2).  Used for
+	 * the top and bottom rows, whose neighbor is in the same row. */
+	final int[] mFoldColumns;
+
+	/* Index of the first cell of the north and south neighbor rows. */
+	final int[] mNorthRowOffsets;
+	final int[] mSouthRowOffsets;
+	/* Column table to use with the north and south row offsets. */
+	final int[][] mNorthColumns;
+	final int[][] mSouthColumns;
+
+	/* Most sun positions to keep longitude attenuation tables for.  The
+	 * simulation advances the sun in whole minutes of a day, so it never
+	 * visits more than this. */
+	private static final int MAX_SUN_COLUMNS = 1440;
+	/* Longitude attenuation tables, keyed by sun longitude.  Every band of
+	 * every step looks its table up here, so reads take no lock. */
+	private final ConcurrentMap<Double, double[]> mSunColumns =
+			new ConcurrentHashMap<Double, double[]>();
+	/* Single precision longitude attenuation tables, keyed by sun longitude. */
+	private final ConcurrentMap<Double, float[]> mFloatSunColumns =
+			new ConcurrentHashMap<Double, float[]>();
+
+	private GridGeometry(double spacing) {
+		mSpacing = spacing;
+		mWidth = SimulationGrid.cellCount(360, mSpacing);
+		mHeight = SimulationGrid.cellCount(180, mSpacing);
+
+		mLongitudes = new double[mWidth];
+		mEastColumns = new int[mWidth];
+		mWestColumns = new int[mWidth];
+		mColumns = new int[mWidth];
+		mFoldColumns = new int[mWidth];
+		for (int x = 0; x < mWidth; x++) {
+			mLongitudes[x] = cellIndexToLongitude(x);
+			mEastColumns[x] = (x + 1) % mWidth;
+			mWestColumns[x] = (x - 1 + mWidth) % mWidth;
+			mColumns[x] = x;
+			mFoldColumns[x] = (x + mWidth / 2) % mWidth;
+		}
+
+		mLatitudes = new double[mHeight];
+		mAreas = new double[mHeight];
+		mLatitudeCosines = new double[mHeight];
+		mHeating = new double[mHeight];
+		mCooling = new double[mHeight];
+		double[] upperWidths = new double[mHeight];
+		double[] lowerWidths = new double[mHeight];
+		double[] heights = new double[mHeight];
+		double[] perimeters = new double[mHeight];
+		for (int y = 0; y < mHeight; y++) {
+			DataCell cell = new DataCell(
+					cellIndexToLatitude(y),
+					0,
+					mSpacing,
+					Constants.AVERAGE_EARTH_TEMPERATURE);
+			mLatitudes[y] = cell.getLatitude();
+			mAreas[y] = cell.getArea();
+			upperWidths[y] = cell.getUpperWidth();
+			lowerWidths[y] = cell.getLowerWidth();
+			heights[y] = cell.getHeight();
+			perimeters[y] = cell.getPerimeter();
+
+			/* Calculate fraction of surface area of the earth occupied
+			 * by the cells in this row. */
+			double beta = mAreas[y] / Constants.EARTH_SURFACE_AREA;
+
+			mLatitudeCosines[y] = Math.cos(Math.toRadians(mLatitudes[y]));
+
+			/* Calculate the heating from the sun which is:
+			 * - the average temperature on earth
+			 * - times the ratio of the surface area occupied
+			 *   by the cell to the total surface area of the
+			 *   earth
+			 * - times 2 since only half the earth is heated
+			 * - times 8, which is the total attenuation values
+			 *   (integral of cos() from 0 to pi in both lat and
+			 *   long directions).
+			 * The attenuation multiplier is applied per cell. */
+			mHeating[y] = Constants.AVERAGE_EARTH_TEMPERATURE * beta * 2 * 8;
+
+			/* Calculate cooling, which is the fraction of surface
+			 * area of the earth occupied by the cell times the
+			 * average temperature on earth. */
+			mCooling[y] = beta * Constants.AVERAGE_EARTH_TEMPERATURE;
+		}
+
+		mNorthWeights = new double[mHeight];
+		mSouthWeights = new double[mHeight];
+		mEastWeights = new double[mHeight];
+		mWestWeights = new double[mHeight];
+		mNorthRowOffsets = new int[mHeight];
+		mSouthRowOffsets = new int[mHeight];
+		mNorthColumns = new int[mHeight][];
+		mSouthColumns = new int[mHeight][];
+		for (int y = 0; y < mHeight; y++) {
+			/* The rows at the poles wrap around to the opposite side
+			 * of the same row. */
+			boolean northPole = y == mHeight - 1;
+			boolean southPole = y == 0;
+			int northY = northPole ? y : y + 1;
+			int southY = southPole ? y : y - 1;
+
+			mNorthRowOffsets[y] = northY * mWidth;
+			mSouthRowOffsets[y] = southY * mWidth;
+			mNorthColumns[y] = northPole ? mFoldColumns : mColumns;
+			mSouthColumns[y] = southPole ? mFoldColumns : mColumns;
+
+			mNorthWeights[y] = upperWidths[y] / mAreas[northY] / perimeters[y] * mAreas[y];
+			mSouthWeights[y] = lowerWidths[y] / mAreas[southY] / perimeters[y] * mAreas[y];
+			mEastWeights[y] = heights[y] / mAreas[y] / perimeters[y] * mAreas[y];
+			mWestWeights[y] = mEastWeights[y];
+		}
+
+		mFloatLatitudeCosines = toFloats(mLatitudeCosines);
+		mFloatHeating = toFloats(mHeating);
+		mFloatCooling = toFloats(mCooling);
+		mFloatNorthWeights = toFloats(mNorthWeights);
+		mFloatSouthWeights = toFloats(mSouthWeights);
+		mFloatEastWeights = toFloats(mEastWeights);
+		mFloatWestWeights = toFloats(mWestWeights);
+	}
+
+	private static float[] toFloats(double[] values) {
+		float[] floats = new float[values.length];
+		for (int i = 0; i < values.length; i++)
+			floats[i] = (float) values[i];
+		return floats;
+	}
+
+	/*
+	 * Get the longitude part of the sun's attenuation for every column,
+	 * which is cos() of the angle to the sun on the day side and 0 on the
+	 * night side.  Tables are built once per sun position.  Threads that
+	 * miss at the same time may each build one, but they build the same
+	 * values and only the first is kept.
+	 */
+	double[] sunColumns(double sunLongitude) {
+		double[] columns = mSunColumns.get(sunLongitude);
+		if (columns == null) {
+			columns = new double[mWidth];
+			for (int x = 0; x < mWidth; x++) {
+				double lon = mLongitudes[x];
+				/* Get the difference in angle between the cell's longitude and the sun's. */
+				double d = Math.abs(lon - sunLongitude);
+				/* Handle wrap-around case. */
+				if (Math.signum(lon) != Math.signum(sunLongitude)) {
+					d = 360 - d;
+				}
+				/* Set value greater than zero only if on the day side of the planet. */
+				if (d < 90)
+					columns[x] = Math.cos(Math.toRadians(d));
+			}
+			columns = cache(mSunColumns, sunLongitude, columns);
+		}
+		return columns;
+	}
+
+	/*
+	 * Single precision version of sunColumns.
+	 */
+	float[] floatSunColumns(double sunLongitude) {
+		float[] columns = mFloatSunColumns.get(sunLongitude);
+		if (columns == null)
+			columns = cache(mFloatSunColumns, sunLongitude, toFloats(sunColumns(sunLongitude)));
+		return columns;
+	}
+
+	/*
+	 * Add a table to a cache unless another thread added one first, and
+	 * return the one kept.  A cache that has grown past MAX_SUN_COLUMNS,
+	 * which only happens if the sun moves by fractions of a minute, is
+	 * emptied first.
+	 */
+	private static <T> T cache(ConcurrentMap<Double, T> tables, double sunLongitude, T columns) {
+		if (tables.size() >= MAX_SUN_COLUMNS)
+			tables.clear();
+		T existing = tables.putIfAbsent(sunLongitude, columns);
+		return existing != null ? existing : columns;
+	}
+
+	/*
+	 * Convert y-index to the latitude of the center of the cell.
+	 */
+	double cellIndexToLatitude(int yIndex) {
+		return (yIndex - (mHeight / 2f)) * mSpacing;
+	}
+
+	/*
+	 * Convert x-index to the longitude of the center of the cell.
+	 */
+	double cellIndexToLongitude(int xIndex) {
+		if ((xIndex < ((mWidth) / 2)))
+			return -1f * (xIndex + 1) * mSpacing;
+		else
+			return 360f - (xIndex + 1) * mSpacing;
+	}
+}
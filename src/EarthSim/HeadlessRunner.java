@@ -0,0 +1,77 @@
+package EarthSim;
+
+import core.LatencyRecorder;
+
+/**
+ * Drives a Simulation directly, without a DisplayModel or any Swing
+ * components, and reports throughput, step latency and the final state of
+ * the grid when it finishes.  Safe to use with java.awt.headless=true.
+ */
+public class HeadlessRunner implements Runnable {
+
+	private final double spacing;
+	private final int timestep;
+	private final int steps;
+
+	public HeadlessRunner(double spacing, int timestep, int steps) {
+		this.spacing = spacing;
+		this.timestep = timestep;
+		this.steps = steps;
+	}
+
+	/**
+	 * Runs the simulation for the configured number of steps and prints
+	 * the report.
+	 */
+	public void run() {
+		Simulation simulation = new Simulation(spacing, timestep);
+		SimulationGrid grid = simulation.getGrid();
+		System.out.printf("Running %d steps of %d min on a %dx%d grid (spacing %s)\n",
+				steps, simulation.mTimestep, grid.mWidth, grid.mHeight, spacing);
+
+		LatencyRecorder latencies = new LatencyRecorder();
+		long start = System.nanoTime();
+		for(int i = 0; i < steps; i++) {
+			long stepStart = System.nanoTime();
+			simulation.step();
+			latencies.record(System.nanoTime() - stepStart);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		printReport(simulation, latencies, elapsed);
+	}
+
+	private void printReport(Simulation simulation, LatencyRecorder latencies, long elapsedNanos) {
+		double seconds = elapsedNanos / 1e9;
+		System.out.printf("Wall time: %.3f s\n", seconds);
+		System.out.printf("Throughput: %.1f steps/s, %.1f simulated minutes per wall second\n",
+				latencies.getCount() / seconds,
+				simulation.getRunningTime() / seconds);
+
+		System.out.printf("Step latency: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms\n",
+				latencies.getPercentile(50) / 1e6,
+				latencies.getPercentile(90) / 1e6,
+				latencies.getPercentile(99) / 1e6,
+				latencies.getMax() / 1e6);
+
+		SimulationGrid grid = simulation.getGrid();
+		double min = Double.MAX_VALUE;
+		double max = -Double.MAX_VALUE;
+		double sum = 0;
+		double sumOfSquares = 0;
+		for(int y = 0; y < grid.mHeight; y++) {
+			for(int x = 0; x < grid.mWidth; x++) {
+				double temperature = grid.getTemperature(x, y);
+				min = Math.min(min, temperature);
+				max = Math.max(max, temperature);
+				sum += temperature;
+				sumOfSquares += temperature * temperature;
+			}
+		}
+		int cells = grid.mWidth * grid.mHeight;
+		double mean = sum / cells;
+		double deviation = Math.sqrt(Math.max(0, sumOfSquares / cells - mean * mean));
+		System.out.printf("Final grid after %d simulated minutes: min %.2f K, max %.2f K, mean %.2f K, std dev %.2f K\n",
+				simulation.getRunningTime(), min, max, mean, deviation);
+	}
+}
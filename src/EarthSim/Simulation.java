@@ -1,10 +1,11 @@
 package EarthSim;
 
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 
 import EarthPresentation.DisplayModel;
 
 import core.Config;
+import core.Lifecycle;
 import core.SimulationState;
 import core.ThreadedEnum;
 
@@ -19,19 +20,34 @@ public class Simulation implements Runnable {
 	private double mSunLongitude = 0;
 	/* Grid of simulation cells. */
 	private SimulationGrid mGrid;
-	/* The next simulation state that will be added to the queue. */
-	private SimulationState mNextSimulationState;
-	/* Queue used to send data to the presentation. */
-	private BlockingQueue<SimulationState> mQueue;
-	/* State flag indicating that the simulation is to be canceled. */
-	private volatile boolean mCanceled = false;
-	/* State flag indicating that the simulation has been paused. */
-	private volatile boolean mPaused = false;
+	/* Engine that advances the grid by one step. */
+	private StepEngine mEngine;
+	/* Number of steps simulated for each state published.  The
+	 * steps in between never leave the engine. */
+	private int mStepsPerPublish;
+	/* Frame written by processStep when not publishing. */
+	private final SimulationState mScratchState = new SimulationState();
+	/* Configuration of the run this simulation belongs to, which
+	 * holds its settings and the buffer it publishes to. */
+	private final Config mConfig;
+	/* Running, paused or cancelled.  Shared with the presentation when
+	 * set by the controller. */
+	private Lifecycle mLifecycle;
 
 
-	public Simulation(int spacing,
+	/* Simulation of the application's global run. */
+	public Simulation(double spacing,
+			int timestep) {
+		this(Config.getInstance(), spacing, timestep);
+	}
+
+	public Simulation(Config config,
+			double spacing,
 			int timestep) {
 
+		mConfig = config;
+		mLifecycle = new Lifecycle(config);
+
 		if (timestep < 1)
 			mTimestep = 1;
 		else if (timestep >= 1440)
@@ -39,145 +55,190 @@ public class Simulation implements Runnable {
 		else
 			mTimestep = timestep;
 		
-		mGrid = new SimulationGrid(spacing);
+		mGrid = new SimulationGrid(spacing, config.getPrecision());
+		
+		mEngine = new StepEngine(
+				config.getParallelism(),
+				config.getKernel());
 		
-		mQueue = Config.getInstance().getBuffer();
+		mStepsPerPublish = config.getSettings().getStepsPerPublish(mTimestep);
 	}
 
 	/* Run the simulation until the buffer s full.
 	 * Depending on whether the simulation thread has
 	 * been enabled, runSimulation is either processed
-	 * in mThread or in the context of the caller. */
+	 * in mThread or in the context of the caller.
+	 * Waits block on the config's handoff signal, so
+	 * they end as soon as the other side acts. */
 	public void run() {
-		mCanceled = false;
-		Config config = Config.getInstance();
+		Config config = mConfig;
 		switch(config.getInitiative()){
 		case MASTER_CONTROL:
-			while(!mCanceled){
-				checkPaused();
-				processStep();
-				boolean retry;
-				do{
-					retry = !mQueue.offer(mNextSimulationState);
-					if(retry){
-						try{
-							Thread.sleep(50);
-						}
-						catch(InterruptedException ex){
-							break;
-						}
-					}
+			while(mLifecycle.awaitRunning()){
+				long generation = config.getHandoffGeneration();
+				SimulationState frame = config.claimState();
+				if(frame == null){
+					/* Buffer is full, wait for the presentation
+					 * to release a frame.  Never happens with the
+					 * latest-value buffer, which replaces unread
+					 * frames instead. */
+					if(!config.awaitHandoff(generation))
+						return;
 				}
-				while(retry);	
+				else
+					publishStep(frame);
 			}
 			break;
 		case SIMULATION: 
 				if(config.getThreadingFlags().contains(ThreadedEnum.PRESENTATION)) {
-					while(!mCanceled){
-						checkPaused();
-						do{
-							processStep();
-						}
-						while(mQueue.offer(mNextSimulationState));
+					while(mLifecycle.awaitRunning()){
+						fillBuffer();
 				
 						if(!config.requested())
 							config.request();
 						
-						while(config.requested()){
-							try{
-								Thread.sleep(50);
-							}
-							catch(InterruptedException ex){
-								break;
-							}
+						long generation = config.getHandoffGeneration();
+						while(!mLifecycle.isCancelled() && config.requested()){
+							if(!config.awaitHandoff(generation))
+								return;
+							generation = config.getHandoffGeneration();
 						}
 					}
 				}
 				else {
-					while(!mCanceled){
-						checkPaused();
-						do{
-							processStep();
-						}
-						while(mQueue.offer(mNextSimulationState));
+					while(mLifecycle.awaitRunning()){
+						fillBuffer();
 						
 						DisplayModel presentation = (DisplayModel) config.getNonInitativeObject();
 						presentation.consume();
 					}
-				}	
+				}
+				break;
 		case PRESENTATION:
-			while(!mCanceled){
+			while(!mLifecycle.isCancelled()){
+				long generation = config.getHandoffGeneration();
 				if(config.requested()){
-					checkPaused();
-					do{
-						processStep();
-					}
-					while(mQueue.offer(mNextSimulationState));
-					config.completed();
-				}
-				else {
-					try{
-						Thread.sleep(50);
-					}
-					catch(InterruptedException ex){
+					if(!mLifecycle.awaitRunning())
 						break;
-					}
+					fillBuffer();
+					config.completed();
 				}
+				else if(!config.awaitHandoff(generation))
+					return;
 			}
 		}			
 	}
 	
-	private void checkPaused() {
-		try{
-			Thread.sleep(50);
+	/* Process and publish steps until the buffer is full.  With
+	 * the latest-value buffer that is a single step. */
+	private void fillBuffer() {
+		Config config = mConfig;
+		while(!config.getBuffer().isFull()){
+			SimulationState frame = config.claimState();
+			if(frame == null)
+				break;
+			publishStep(frame);
 		}
-		catch(InterruptedException ex){
+	}
+	
+	/* Process the steps for a claimed frame and publish it,
+	 * recording how long it took for an adaptive buffer.  A
+	 * frame left partly advanced by a stop is not published. */
+	private void publishStep(SimulationState frame) {
+		long start = System.nanoTime();
+		if (!processStep(frame))
 			return;
-		}
+		mConfig.publishState(frame);
+		mConfig.recordProduced(start);
 	}
 	
 	public void produce(){
-		do{
-			processStep();
-		}
-		while(mQueue.offer(mNextSimulationState));
+		fillBuffer();
 	}
 	
 	/* Pause the simulation on its next iteration. */
 	public void pause() {
-		mPaused = true;
+		mLifecycle.pause();
 	}
 
 	/* Resume a paused simulation. */
 	public void resume() {
-		mPaused = false;
+		mLifecycle.resume();
 	}
 
 	/* Force stop the simulation on its next iteration. */
 	public void cancel() {
-		mCanceled = true;
+		mLifecycle.cancel();
 	}
 	
-	/* Process on step in the simulation. */
-	private void processStep() {
-
-		/* Process radiant temperature changes. */
-		mGrid.calculateRadiantTemperatures(mSunLongitude);
+	/* Use a lifecycle shared with the presentation.  Must be
+	 * set before the simulation starts running. */
+	public void setLifecycle(Lifecycle lifecycle) {
+		mLifecycle = lifecycle;
+	}
+	
+	public Lifecycle getLifecycle() {
+		return mLifecycle;
+	}
+	
+	/* Run the engine's band workers on an executor, such as one
+	 * owned by the run's scope.  Must be set before the simulation
+	 * starts running. */
+	public void setExecutor(ExecutorService executor) {
+		mEngine = new StepEngine(mEngine.getParallelism(), mEngine.getKernel(), executor);
+	}
+	
+	/* Simulate this many steps for each state published. */
+	public void setStepsPerPublish(int steps) {
+		mStepsPerPublish = Math.max(1, steps);
+	}
+	
+	public int getStepsPerPublish() {
+		return mStepsPerPublish;
+	}
+	
+	/* Process the steps for one published state and copy the
+	 * state into a frame owned by the simulation, without
+	 * publishing it. */
+	public void processStep() {
+		processStep(mScratchState);
+	}
+	
+	/* Process the steps for one published state and copy the
+	 * state into a frame claimed from the buffer.  Returns false,
+	 * leaving the frame unfilled, if the simulation was stopped
+	 * before the last step. */
+	private boolean processStep(SimulationState frame) {
+		/* Intermediate steps are not copied anywhere.  A pause
+		 * takes effect between them, so a long publish interval
+		 * does not run on for a whole frame after pausing. */
+		for (int i = 1; i < mStepsPerPublish; i++) {
+			if (!mLifecycle.awaitRunning())
+				return false;
+			step();
+		}
+		if (!mLifecycle.awaitRunning())
+			return false;
 		
-		/* Create a new simulation grid that is a copy of the previous one. */
-		SimulationGrid newGrid = new SimulationGrid(mGrid);
-
-		/* Process convection by calculating values from the
-		 * old grid to the new one. */
-		newGrid.processConvection(mGrid);
+		double sunLongitude = mSunLongitude;
 		
-		/* Overwrite the old grid with the new one. */
-		mGrid = newGrid;
+		step();
+
+		/* Copy the temperatures, since the grid reuses its
+		 * buffers and the frame is reused once released. */
+		mGrid.copyTemperatures(frame.reuse(
+				mGrid.mWidth,
+				mGrid.mHeight,
+				sunLongitude));
+		return true;
+	}
+	
+	/* Process one step in the simulation without publishing it. */
+	public void step() {
 
-		/* Create the next simulation state. */
-		mNextSimulationState = new SimulationState(
-				mGrid.getCells(),
-				mSunLongitude);
+		/* Process radiant temperature changes, then convection from
+		 * the grid's current temperatures into its next ones. */
+		mEngine.step(mGrid, mSunLongitude);
 		
 		/* Advance running time. */
 		mRunningTime += mTimestep;
@@ -185,4 +246,14 @@ public class Simulation implements Runnable {
 		/* Advance the sun for the next simulation state. */
 		mSunLongitude = 180 - ((mRunningTime+720) % 1440) * 360 / 1440;
 	}
+	
+	/* Grid holding the current temperatures. */
+	public SimulationGrid getGrid() {
+		return mGrid;
+	}
+	
+	/* Time in minutes since the beginning of the simulation. */
+	public int getRunningTime() {
+		return mRunningTime;
+	}
 }
@@ -1,190 +1,491 @@
 package EarthSim;
 
+import java.util.Arrays;
+
 import core.Constants;
-import core.DataCell;
+import core.PrecisionEnum;
 
 public class SimulationGrid {
+	/* Vectorized convection kernel, or null when the Vector API is not
+	 * available. */
+	private static final ConvectionKernel sVectorKernel = loadVectorKernel();
+
+	/* Load the vectorized convection kernel if it was compiled and the
+	 * jdk.incubator.vector module is present. */
+	private static ConvectionKernel loadVectorKernel() {
+		try {
+			ConvectionKernel kernel = (ConvectionKernel) Class
+					.forName("EarthSim.VectorConvection")
+					.getDeclaredConstructor()
+					.newInstance();
+			/* Run it once so a missing module shows up here rather
+			 * than in the middle of a step. */
+			GridGeometry geometry = GridGeometry.forSpacing(180);
+			double[] temperatures = new double[geometry.mWidth * geometry.mHeight];
+			kernel.convectRows(geometry, temperatures, temperatures.clone(), 0, geometry.mHeight);
+			return kernel;
+		}
+		catch (Exception ex) {
+			return null;
+		}
+		catch (LinkageError ex) {
+			return null;
+		}
+	}
+
+	/* Whether processVectorConvection uses the Vector API. */
+	public static boolean isVectorAvailable() {
+		return sVectorKernel != null;
+	}
+
+	/* Smallest supported spacing, which gives a 3600 x 1800 grid. */
+	public static final double MIN_SPACING = 0.1;
+
 	/*
 	 * Number of degrees spanned by each grid cell in both latitude and
-	 * longitude directions.
+	 * longitude directions.  May be fractional.
 	 */
-	private final int mSpacing;
+	private final double mSpacing;
 	/* The width of the 2d array representing temperature values. */
 	public final int mWidth;
 	/* The height of the 2d array representing temperature values. */
 	public final int mHeight;
-	/* 2d-array of simulation cells. */
-	private DataCell[][] mCells;
-	
-	
-	public DataCell[][] getCells() {
-		return mCells;
-	}
-
-	public SimulationGrid(int spacing) {
-		mSpacing = ((spacing-1) % 180) + 1;
-		mWidth = 360 / mSpacing;
-		mHeight = 180 / mSpacing;
-		mCells = new DataCell[mWidth][mHeight];
-		
-		for (int x = 0; x < mWidth; x++) {
-			double longitude = cellIndexToLongitude(x);
-			for (int y = 0; y < mHeight; y++) {
-				mCells[x][y] = new DataCell(
-						cellIndexToLatitude(y),
-						longitude,
-						mSpacing,
-						Constants.AVERAGE_EARTH_TEMPERATURE);
-			}
+	/* Precision temperatures are stored and processed in. */
+	private final PrecisionEnum mPrecision;
+	/* Cell geometry and convection stencil, shared by all grids with
+	 * the same spacing. */
+	private final GridGeometry mGeometry;
+	/* Temperatures read during a step, indexed by y * mWidth + x.
+	 * Only the pair matching mPrecision is allocated. */
+	private double[] mTemperatures;
+	private float[] mFloatTemperatures;
+	/* Temperatures written during a step.  Swapped with the current
+	 * temperatures once the step is complete. */
+	private double[] mNextTemperatures;
+	private float[] mNextFloatTemperatures;
+	/* Heated rows used by the fused step when it runs on the whole grid. */
+	private FusedRows mFusedRows;
+
+	public SimulationGrid(double spacing) {
+		this(spacing, PrecisionEnum.DOUBLE);
+	}
+
+	public SimulationGrid(double spacing, PrecisionEnum precision) {
+		if (spacing < MIN_SPACING)
+			mSpacing = MIN_SPACING;
+		else if (spacing > 180)
+			mSpacing = ((spacing-1) % 180) + 1;
+		else
+			mSpacing = spacing;
+		mGeometry = GridGeometry.forSpacing(mSpacing);
+		mWidth = mGeometry.mWidth;
+		mHeight = mGeometry.mHeight;
+
+		if (precision == null)
+			mPrecision = PrecisionEnum.DOUBLE;
+		else
+			mPrecision = precision;
+
+		if (mPrecision == PrecisionEnum.FLOAT) {
+			mFloatTemperatures = new float[mWidth * mHeight];
+			mNextFloatTemperatures = new float[mWidth * mHeight];
+			Arrays.fill(mFloatTemperatures, (float) Constants.AVERAGE_EARTH_TEMPERATURE);
+		}
+		else {
+			mTemperatures = new double[mWidth * mHeight];
+			mNextTemperatures = new double[mWidth * mHeight];
+			Arrays.fill(mTemperatures, Constants.AVERAGE_EARTH_TEMPERATURE);
 		}
 	}
-	
+
 	public SimulationGrid(SimulationGrid other) {
 		mSpacing = other.mSpacing;
+		mGeometry = other.mGeometry;
 		mWidth = other.mWidth;
 		mHeight = other.mHeight;
-		
-		/* Perform deep copy of 2D data cell array. */
-		mCells = new DataCell[mWidth][mHeight];
-		for (int x = 0; x < mWidth; x++) {
-			for (int y = 0; y < mHeight; y++) {
-				mCells[x][y] = new DataCell(other.getCellFromIndex(x, y));
-			}
+		mPrecision = other.mPrecision;
+
+		/* Perform deep copy of the temperatures. */
+		if (mPrecision == PrecisionEnum.FLOAT) {
+			mFloatTemperatures = other.mFloatTemperatures.clone();
+			mNextFloatTemperatures = new float[mWidth * mHeight];
+		}
+		else {
+			mTemperatures = other.mTemperatures.clone();
+			mNextTemperatures = new double[mWidth * mHeight];
 		}
 	}
-	
+
+	/*
+	 * Number of whole cells of the given spacing that fit in a span of
+	 * degrees.  Tolerates the rounding error of fractional spacings, so
+	 * 360 / 0.1 gives 3600 cells rather than 3599.
+	 */
+	public static int cellCount(double degrees, double spacing) {
+		return (int) Math.floor(degrees / spacing + 1e-9);
+	}
+
+	public PrecisionEnum getPrecision() {
+		return mPrecision;
+	}
+
 	/*
 	 * Convert y-index to the latitude of the center of the cell.
 	 */
 	public double cellIndexToLatitude(int yIndex) {
-		return (yIndex - (mHeight / 2f)) * mSpacing;
+		return mGeometry.cellIndexToLatitude(yIndex);
 	}
 
 	/*
 	 * Convert x-index to the longitude of the center of the cell.
 	 */
 	public double cellIndexToLongitude(int xIndex) {
-		if ((xIndex < ((mWidth) / 2)))
-			return -1f * (xIndex + 1) * mSpacing;
-		else
-			return 360f - (xIndex + 1) * mSpacing;	
+		return mGeometry.cellIndexToLongitude(xIndex);
+	}
+
+	/* Get the temperature of a cell in the grid. */
+	public double getTemperature(int x, int y) {
+		if (mFloatTemperatures != null)
+			return mFloatTemperatures[y * mWidth + x];
+		return mTemperatures[y * mWidth + x];
 	}
-	
-	/* Get DataCell object from grid. */
-	public DataCell getCellFromIndex(int[] index) {
-		return mCells[index[0]][index[1]];
+
+	/* Copy the current temperatures into an existing array of
+	 * mWidth * mHeight cells laid out as y * mWidth + x. */
+	public void copyTemperatures(double[] temperatures) {
+		if (mFloatTemperatures != null) {
+			for (int i = 0; i < temperatures.length; i++)
+				temperatures[i] = mFloatTemperatures[i];
+		}
+		else
+			System.arraycopy(mTemperatures, 0, temperatures, 0, temperatures.length);
 	}
-	public DataCell getCellFromIndex(int x, int y) {
-		return mCells[x][y];
+
+	/* Update all cells' temperatures from the neighboring cells.
+	 * Temperatures are read from the current plane and written to the
+	 * next one, then the planes are swapped.  Unlike the original model,
+	 * which processSequentialConvection follows, every neighbor is read
+	 * as it was before the step, so the grid settles at different
+	 * temperatures. */
+	public void processConvection() {
+		processConvection(0, mHeight);
+		swapTemperatures();
 	}
-	
-	/* Calculate West neighbor. */
-	public int[] getWestNeighbor(int[] index) {
-		return new int[] { (index[0] - 1 + mWidth) % mWidth, index[1] };
+
+	/* Convect rows [yStart, yEnd) from the current plane into the next
+	 * one.  The planes are not swapped. */
+	void processConvection(int yStart, int yEnd) {
+		if (mFloatTemperatures != null)
+			convectRows(mFloatTemperatures, mNextFloatTemperatures, yStart, yEnd);
+		else
+			convectRows(mTemperatures, mNextTemperatures, yStart, yEnd);
 	}
 
-	/* Calculate West neighbor. */
-	public int[] getEastNeighbor(int[] index) {
-		return new int[] { (index[0] + 1) % mWidth, index[1]};
+	/* Update all cells' temperatures from the neighboring cells using the
+	 * Vector API, falling back to the scalar loop when it is not available.
+	 * Gives exactly the same temperatures as processConvection. */
+	public void processVectorConvection() {
+		processVectorConvection(0, mHeight);
+		swapTemperatures();
 	}
 
-	/* Calculate North neighbor. */
-	public int[] getNorthNeighbor(int[] index) {
-		if (index[1] < mHeight - 1)
-			return new int[] {index[0], index[1] + 1};
+	/* Convect rows [yStart, yEnd) with the Vector API.  The planes are not
+	 * swapped.  The vector kernel only handles doubles, so float grids use
+	 * the scalar loop. */
+	void processVectorConvection(int yStart, int yEnd) {
+		if (sVectorKernel != null && mTemperatures != null)
+			sVectorKernel.convectRows(mGeometry, mTemperatures, mNextTemperatures, yStart, yEnd);
 		else
-			return new int[] {(index[0] + mWidth / 2) % mWidth, index[1]};
+			processConvection(yStart, yEnd);
 	}
 
-	/* Calculate South neighbor. */
-	public int[] getSouthNeighbor(int[] index) {
-		if (index[1] > 0)
-			return new int[] {index[0], index[1] - 1};
+	/* Update all cells' temperatures in place, in the order the original
+	 * DataCell grid did: column by column from the west, each column from
+	 * the south.  Neighbors already updated earlier in the sweep are read
+	 * with their new temperatures, so the result depends on the order and
+	 * the grid cannot be split into bands.  The planes are not swapped. */
+	public void processSequentialConvection() {
+		if (mFloatTemperatures != null)
+			convectInPlace(mFloatTemperatures);
 		else
-			return new int[] {(index[0] + mWidth / 2) % mWidth, index[1]};
+			convectInPlace(mTemperatures);
 	}
-	
-	/* Update all cells' temperatures form the neighboring
-	 * cells in another grid. */
-	public void processConvection(SimulationGrid other) {
+
+	/* Convect every cell of a temperature plane in place. */
+	private void convectInPlace(double[] t) {
+		GridGeometry g = mGeometry;
+
 		for (int x = 0; x < mWidth; x++) {
+			int east = g.mEastColumns[x];
+			int west = g.mWestColumns[x];
 			for (int y = 0; y < mHeight; y++) {
-				int[] index = new int[]{x, y};
-				DataCell cell = getCellFromIndex(index);
-				DataCell north = getCellFromIndex(other.getNorthNeighbor(index));
-				DataCell south = getCellFromIndex(other.getSouthNeighbor(index));
-				DataCell east = getCellFromIndex(other.getEastNeighbor(index));
-				DataCell west = getCellFromIndex(other.getWestNeighbor(index));
-
-                /* Add up the temperature of all neighbors scaled by the ratio
-                 * of the length of the connecting side to the total perimeter and
-                 * the ration of the cells surface area to the neighbor's surface
-                 * area. */
-				double newTemperature =
-                        (cell.getUpperWidth() * north.getTemperature() / north.getArea()
-						+ cell.getLowerWidth() * south.getTemperature() / south.getArea()
-						+ cell.getHeight() * east.getTemperature() / east.getArea()
-                        + cell.getHeight() * west.getTemperature() / west.getArea())
-						/ cell.getPerimeter() * cell.getArea();
-
-				cell.setTemperature(newTemperature);
+				int row = y * mWidth;
+				t[row + x] = g.mNorthWeights[y] * t[g.mNorthRowOffsets[y] + g.mNorthColumns[y][x]]
+						+ g.mSouthWeights[y] * t[g.mSouthRowOffsets[y] + g.mSouthColumns[y][x]]
+						+ g.mEastWeights[y] * t[row + east]
+						+ g.mWestWeights[y] * t[row + west];
 			}
 		}
 	}
-	
-	/* Calculate radiant temperature. */
-	public void calculateRadiantTemperatures(double sunLongitude) {
+
+	/* Single precision version of convectInPlace. */
+	private void convectInPlace(float[] t) {
+		GridGeometry g = mGeometry;
 
 		for (int x = 0; x < mWidth; x++) {
+			int east = g.mEastColumns[x];
+			int west = g.mWestColumns[x];
 			for (int y = 0; y < mHeight; y++) {
-				DataCell cell = getCellFromIndex(x, y);
-
-                /* Calculate fraction of surface area of the earth occupied
-                 * by the cell. */
-                double beta = cell.getArea() / Constants.EARTH_SURFACE_AREA;
-
-				/* Calculate attenuation. */
-				double attenuation = calculateAttenuation(
-						cell.getLatitude(),
-						cell.getLongitude(),
-						sunLongitude);
-
-				/* Calculate the heating from the sun which is:
-				 * - the average temperature on earth
-				 * - times the ratio of the surface area occupied
-				 *   by the cell to the total surface area of the
-				 *   earth
-				 * - times 2 since only half the earth is heated
-				 * - times 8, which is the total attenuation values
-				 *   (integral of cos() from 0 to pi in both lat and
-				 *   long directions).
-				 * - times the attenuation multiplier (between 0 and 1).
-				 */
-				double Th = Constants.AVERAGE_EARTH_TEMPERATURE * beta * 2 * 8 * attenuation;
-
-				/* Calculate cooling, which is the fraction of surface
-				 * area of the earth occupied by the cell times the
-				 * average temperature on earth. */
-				double Tc = beta * Constants.AVERAGE_EARTH_TEMPERATURE;
-
-                /* Apply the total temperature change. */
-				cell.setTemperature(cell.getTemperature() + Th - Tc);
+				int row = y * mWidth;
+				t[row + x] = g.mFloatNorthWeights[y] * t[g.mNorthRowOffsets[y] + g.mNorthColumns[y][x]]
+						+ g.mFloatSouthWeights[y] * t[g.mSouthRowOffsets[y] + g.mSouthColumns[y][x]]
+						+ g.mFloatEastWeights[y] * t[row + east]
+						+ g.mFloatWestWeights[y] * t[row + west];
+			}
+		}
+	}
+
+	/* Swap the planes so the new temperatures become current. */
+	void swapTemperatures() {
+		double[] temperatures = mTemperatures;
+		mTemperatures = mNextTemperatures;
+		mNextTemperatures = temperatures;
+
+		float[] floatTemperatures = mFloatTemperatures;
+		mFloatTemperatures = mNextFloatTemperatures;
+		mNextFloatTemperatures = floatTemperatures;
+	}
+
+	/* Convect rows [yStart, yEnd) from one temperature plane into another. */
+	private void convectRows(double[] src, double[] dst, int yStart, int yEnd) {
+		GridGeometry g = mGeometry;
+		int[] eastColumns = g.mEastColumns;
+		int[] westColumns = g.mWestColumns;
+
+		for (int y = yStart; y < yEnd; y++) {
+			int row = y * mWidth;
+			int northRow = g.mNorthRowOffsets[y];
+			int southRow = g.mSouthRowOffsets[y];
+			int[] northColumns = g.mNorthColumns[y];
+			int[] southColumns = g.mSouthColumns[y];
+			double northWeight = g.mNorthWeights[y];
+			double southWeight = g.mSouthWeights[y];
+			double eastWeight = g.mEastWeights[y];
+			double westWeight = g.mWestWeights[y];
+
+			/* Add up the temperature of all neighbors scaled by the ratio
+			 * of the length of the connecting side to the total perimeter and
+			 * the ratio of the cell's surface area to the neighbor's surface
+			 * area, which the weights already include. */
+			for (int x = 0; x < mWidth; x++) {
+				dst[row + x] = northWeight * src[northRow + northColumns[x]]
+						+ southWeight * src[southRow + southColumns[x]]
+						+ eastWeight * src[row + eastColumns[x]]
+						+ westWeight * src[row + westColumns[x]];
 			}
 		}
 	}
-	
-	/* Calculate attenuation of sun's heat for a given grid cell. */
-	private double calculateAttenuation(double lat, double lon, double sunLon) {
-        double attn = 0;
-        /* Get the difference in angle between the cell's longitude and the sun's. */
-		double d = Math.abs(lon - sunLon);
-        /* Handle wrap-around case. */
-        if (Math.signum(lon) != Math.signum(sunLon)) {
-            d = 360 - d;
-        }
-        /* Set value greater than zero only if on the day side of the planet. */
-		if (d < 90)
-            attn = Math.cos(Math.toRadians(d)) * Math.cos(Math.toRadians(lat));
-		return attn;
+
+	/* Single precision version of convectRows. */
+	private void convectRows(float[] src, float[] dst, int yStart, int yEnd) {
+		GridGeometry g = mGeometry;
+		int[] eastColumns = g.mEastColumns;
+		int[] westColumns = g.mWestColumns;
+
+		for (int y = yStart; y < yEnd; y++) {
+			int row = y * mWidth;
+			int northRow = g.mNorthRowOffsets[y];
+			int southRow = g.mSouthRowOffsets[y];
+			int[] northColumns = g.mNorthColumns[y];
+			int[] southColumns = g.mSouthColumns[y];
+			float northWeight = g.mFloatNorthWeights[y];
+			float southWeight = g.mFloatSouthWeights[y];
+			float eastWeight = g.mFloatEastWeights[y];
+			float westWeight = g.mFloatWestWeights[y];
+
+			for (int x = 0; x < mWidth; x++) {
+				dst[row + x] = northWeight * src[northRow + northColumns[x]]
+						+ southWeight * src[southRow + southColumns[x]]
+						+ eastWeight * src[row + eastColumns[x]]
+						+ westWeight * src[row + westColumns[x]];
+			}
+		}
+	}
+
+	/* Process radiation and convection for the whole grid in a single
+	 * pass, then swap the planes.  Gives exactly the same temperatures as
+	 * calculateRadiantTemperatures followed by processConvection, so it
+	 * implements the two-plane scheme and not the original model that
+	 * processSequentialConvection follows. */
+	public void processFusedStep(double sunLongitude) {
+		if (mFusedRows == null)
+			mFusedRows = createFusedRows();
+
+		processFusedStep(sunLongitude, 0, mHeight, mFusedRows);
+		swapTemperatures();
+	}
+
+	/* Heated row buffers used by a fused step.  Only the buffers matching
+	 * the grid's precision are allocated. */
+	static final class FusedRows {
+		final double[][] mDoubles;
+		final float[][] mFloats;
+
+		private FusedRows(double[][] doubles, float[][] floats) {
+			mDoubles = doubles;
+			mFloats = floats;
+		}
+	}
+
+	/* Allocate the heated row buffers needed by a fused step. */
+	FusedRows createFusedRows() {
+		if (mPrecision == PrecisionEnum.FLOAT)
+			return new FusedRows(null, new float[3][mWidth]);
+		return new FusedRows(new double[3][mWidth], null);
+	}
+
+	/* Heat and convect rows [yStart, yEnd) from the current plane into the
+	 * next one.  Each source row is heated once into one of three rolling
+	 * row buffers, so the current plane is only read and the next one is
+	 * only written.  The planes are not swapped. */
+	void processFusedStep(double sunLongitude, int yStart, int yEnd, FusedRows buffers) {
+		if (mFloatTemperatures != null) {
+			processFloatFusedStep(sunLongitude, yStart, yEnd, buffers.mFloats);
+			return;
+		}
+
+		GridGeometry g = mGeometry;
+		double[][] rows = buffers.mDoubles;
+		double[] src = mTemperatures;
+		double[] dst = mNextTemperatures;
+		int[] eastColumns = g.mEastColumns;
+		int[] westColumns = g.mWestColumns;
+
+		double[] sunColumns = g.sunColumns(sunLongitude);
+
+		/* Last row that has been heated into the row buffers. */
+		int heated = Math.max(yStart - 1, 0);
+		radiateRow(sunColumns, heated, src, heated * mWidth, rows[heated % 3], 0);
+
+		for (int y = yStart; y < yEnd; y++) {
+			int northY = (y < mHeight - 1) ? y + 1 : y;
+			int southY = (y > 0) ? y - 1 : y;
+			while (heated < northY) {
+				heated++;
+				radiateRow(sunColumns, heated, src, heated * mWidth, rows[heated % 3], 0);
+			}
+
+			double[] north = rows[northY % 3];
+			double[] south = rows[southY % 3];
+			double[] current = rows[y % 3];
+			int row = y * mWidth;
+			int[] northColumns = g.mNorthColumns[y];
+			int[] southColumns = g.mSouthColumns[y];
+			double northWeight = g.mNorthWeights[y];
+			double southWeight = g.mSouthWeights[y];
+			double eastWeight = g.mEastWeights[y];
+			double westWeight = g.mWestWeights[y];
+
+			for (int x = 0; x < mWidth; x++) {
+				dst[row + x] = northWeight * north[northColumns[x]]
+						+ southWeight * south[southColumns[x]]
+						+ eastWeight * current[eastColumns[x]]
+						+ westWeight * current[westColumns[x]];
+			}
+		}
+	}
+
+	/* Single precision version of the fused step. */
+	private void processFloatFusedStep(double sunLongitude, int yStart, int yEnd, float[][] rows) {
+		GridGeometry g = mGeometry;
+		float[] src = mFloatTemperatures;
+		float[] dst = mNextFloatTemperatures;
+		int[] eastColumns = g.mEastColumns;
+		int[] westColumns = g.mWestColumns;
+
+		float[] sunColumns = g.floatSunColumns(sunLongitude);
+
+		int heated = Math.max(yStart - 1, 0);
+		radiateRow(sunColumns, heated, src, heated * mWidth, rows[heated % 3], 0);
+
+		for (int y = yStart; y < yEnd; y++) {
+			int northY = (y < mHeight - 1) ? y + 1 : y;
+			int southY = (y > 0) ? y - 1 : y;
+			while (heated < northY) {
+				heated++;
+				radiateRow(sunColumns, heated, src, heated * mWidth, rows[heated % 3], 0);
+			}
+
+			float[] north = rows[northY % 3];
+			float[] south = rows[southY % 3];
+			float[] current = rows[y % 3];
+			int row = y * mWidth;
+			int[] northColumns = g.mNorthColumns[y];
+			int[] southColumns = g.mSouthColumns[y];
+			float northWeight = g.mFloatNorthWeights[y];
+			float southWeight = g.mFloatSouthWeights[y];
+			float eastWeight = g.mFloatEastWeights[y];
+			float westWeight = g.mFloatWestWeights[y];
+
+			for (int x = 0; x < mWidth; x++) {
+				dst[row + x] = northWeight * north[northColumns[x]]
+						+ southWeight * south[southColumns[x]]
+						+ eastWeight * current[eastColumns[x]]
+						+ westWeight * current[westColumns[x]];
+			}
+		}
+	}
+
+	/* Calculate radiant temperature. */
+	public void calculateRadiantTemperatures(double sunLongitude) {
+		calculateRadiantTemperatures(sunLongitude, 0, mHeight);
+	}
+
+	/* Calculate radiant temperature for rows [yStart, yEnd). */
+	void calculateRadiantTemperatures(double sunLongitude, int yStart, int yEnd) {
+		if (mFloatTemperatures != null) {
+			float[] sunColumns = mGeometry.floatSunColumns(sunLongitude);
+			for (int y = yStart; y < yEnd; y++) {
+				radiateRow(sunColumns, y, mFloatTemperatures, y * mWidth, mFloatTemperatures, y * mWidth);
+			}
+			return;
+		}
+
+		double[] sunColumns = mGeometry.sunColumns(sunLongitude);
+
+		for (int y = yStart; y < yEnd; y++) {
+			radiateRow(sunColumns, y, mTemperatures, y * mWidth, mTemperatures, y * mWidth);
+		}
+	}
+
+	/* Apply radiant heating and cooling to row y, reading the row from src
+	 * and writing the result to dst.  src and dst may be the same.
+	 * sunColumns is the longitude attenuation table for the sun's position,
+	 * so the attenuation of a cell is a product of two table entries. */
+	private void radiateRow(double[] sunColumns, int y,
+			double[] src, int srcOffset, double[] dst, int dstOffset) {
+		double latitudeCosine = mGeometry.mLatitudeCosines[y];
+		double heating = mGeometry.mHeating[y];
+		double cooling = mGeometry.mCooling[y];
+
+		for (int x = 0; x < mWidth; x++) {
+			/* Heating times the attenuation multiplier (between 0 and 1),
+			 * minus cooling. */
+			dst[dstOffset + x] = src[srcOffset + x]
+					+ heating * (sunColumns[x] * latitudeCosine) - cooling;
+		}
+	}
+
+	/* Single precision version of radiateRow. */
+	private void radiateRow(float[] sunColumns, int y,
+			float[] src, int srcOffset, float[] dst, int dstOffset) {
+		float latitudeCosine = mGeometry.mFloatLatitudeCosines[y];
+		float heating = mGeometry.mFloatHeating[y];
+		float cooling = mGeometry.mFloatCooling[y];
+
+		for (int x = 0; x < mWidth; x++) {
+			dst[dstOffset + x] = src[srcOffset + x]
+					+ heating * (sunColumns[x] * latitudeCosine) - cooling;
+		}
 	}
 }
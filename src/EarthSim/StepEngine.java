@@ -0,0 +1,223 @@
+package EarthSim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import core.KernelEnum;
+
+/*
+ * Advances a SimulationGrid by one step, splitting the grid into bands of
+ * latitude rows that are processed in parallel.  Every cell is computed
+ * with exactly the same arithmetic as the serial path of the same kernel,
+ * so the results do not depend on the parallelism.
+ *
+ * Only the standard, fused and vector kernels can be split.  They read
+ * every neighbor as it was before the step, which is a different scheme
+ * from the original model's in-place sweep and settles at different
+ * temperatures.  The sequential kernel, which is the original model,
+ * always runs on the calling thread.
+ */
+public class StepEngine {
+	/* Worker pools already created, keyed by parallelism.  Pool threads are
+	 * daemons and are shared by every engine with the same parallelism. */
+	private static final Map<Integer, ForkJoinPool> sPools =
+			new HashMap<Integer, ForkJoinPool>();
+
+	private static synchronized ForkJoinPool poolFor(int parallelism) {
+		ForkJoinPool pool = sPools.get(parallelism);
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+			sPools.put(parallelism, pool);
+		}
+		return pool;
+	}
+
+	/* Reports that the vector kernel was asked for without the Vector
+	 * API.  The message is printed when the class is loaded, so it shows
+	 * once however many engines are built. */
+	private static class VectorFallback {
+		static {
+			System.out.println("Vector API is not available, using the standard kernel");
+		}
+
+		static void report() {
+		}
+	}
+
+	/* Number of bands processed at once.  1 runs everything on the
+	 * calling thread. */
+	private final int mParallelism;
+	/* Kernel used to process each band. */
+	private final KernelEnum mKernel;
+	/* Executor the bands run on, or null when running serially. */
+	private final ExecutorService mExecutor;
+
+	/* Grid the band tasks were built for. */
+	private SimulationGrid mGrid;
+	/* Longitude of the sun for the step being processed. */
+	private double mSunLongitude;
+	/* Band tasks for each phase of a step. */
+	private List<Callable<Void>> mRadiationTasks;
+	private List<Callable<Void>> mConvectionTasks;
+	private List<Callable<Void>> mFusedTasks;
+	private List<Callable<Void>> mVectorTasks;
+
+	public StepEngine(int parallelism) {
+		this(parallelism, KernelEnum.SEQUENTIAL);
+	}
+
+	public StepEngine(int parallelism, KernelEnum kernel) {
+		this(parallelism, kernel, null);
+	}
+
+	/* Run the bands on the given executor, such as one owned by the
+	 * run's scope, instead of the shared pool.  A null executor uses
+	 * the shared pool. */
+	public StepEngine(int parallelism, KernelEnum kernel, ExecutorService executor) {
+		if (parallelism < 1)
+			mParallelism = 1;
+		else
+			mParallelism = parallelism;
+
+		if (kernel == null)
+			mKernel = KernelEnum.SEQUENTIAL;
+		else if (kernel == KernelEnum.VECTOR && !SimulationGrid.isVectorAvailable()) {
+			VectorFallback.report();
+			mKernel = KernelEnum.STANDARD;
+		}
+		else
+			mKernel = kernel;
+
+		if (mParallelism == 1)
+			mExecutor = null;
+		else if (executor != null)
+			mExecutor = executor;
+		else
+			mExecutor = poolFor(mParallelism);
+	}
+
+	public int getParallelism() {
+		return mParallelism;
+	}
+
+	public KernelEnum getKernel() {
+		return mKernel;
+	}
+
+	/* Process one step of the simulation on the grid. */
+	public void step(SimulationGrid grid, double sunLongitude) {
+		/* The sequential kernel reads cells updated earlier in the same
+		 * sweep, so it always runs on the calling thread. */
+		if (mExecutor == null || grid.mHeight < 2 || mKernel == KernelEnum.SEQUENTIAL) {
+			switch (mKernel) {
+			case FUSED:
+				grid.processFusedStep(sunLongitude);
+				break;
+			case VECTOR:
+				grid.calculateRadiantTemperatures(sunLongitude);
+				grid.processVectorConvection();
+				break;
+			case SEQUENTIAL:
+				grid.calculateRadiantTemperatures(sunLongitude);
+				grid.processSequentialConvection();
+				break;
+			default:
+				grid.calculateRadiantTemperatures(sunLongitude);
+				grid.processConvection();
+				break;
+			}
+			return;
+		}
+
+		if (grid != mGrid)
+			buildTasks(grid);
+		mSunLongitude = sunLongitude;
+
+		switch (mKernel) {
+		case FUSED:
+			/* Each band heats the rows it reads itself, so one pass
+			 * is enough. */
+			runAll(mFusedTasks);
+			break;
+		case VECTOR:
+			runAll(mRadiationTasks);
+			runAll(mVectorTasks);
+			break;
+		default:
+			/* Convection reads the neighboring rows, so every band has
+			 * to be heated before any band is convected. */
+			runAll(mRadiationTasks);
+			runAll(mConvectionTasks);
+			break;
+		}
+		grid.swapTemperatures();
+	}
+
+	private void runAll(List<Callable<Void>> tasks) {
+		try {
+			for (Future<Void> result : mExecutor.invokeAll(tasks))
+				result.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while processing a step", ex);
+		}
+		catch (ExecutionException ex) {
+			throw new IllegalStateException("Failed to process a step", ex.getCause());
+		}
+	}
+
+	/* Split the grid's rows into one band per worker. */
+	private void buildTasks(final SimulationGrid grid) {
+		int bands = Math.min(mParallelism, grid.mHeight);
+		mRadiationTasks = new ArrayList<Callable<Void>>(bands);
+		mConvectionTasks = new ArrayList<Callable<Void>>(bands);
+		mFusedTasks = new ArrayList<Callable<Void>>(bands);
+		mVectorTasks = new ArrayList<Callable<Void>>(bands);
+
+		for (int band = 0; band < bands; band++) {
+			final int yStart = band * grid.mHeight / bands;
+			final int yEnd = (band + 1) * grid.mHeight / bands;
+
+			mRadiationTasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					grid.calculateRadiantTemperatures(mSunLongitude, yStart, yEnd);
+					return null;
+				}
+			});
+			mConvectionTasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					grid.processConvection(yStart, yEnd);
+					return null;
+				}
+			});
+			mVectorTasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					grid.processVectorConvection(yStart, yEnd);
+					return null;
+				}
+			});
+
+			final SimulationGrid.FusedRows rows = grid.createFusedRows();
+			mFusedTasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					grid.processFusedStep(mSunLongitude, yStart, yEnd, rows);
+					return null;
+				}
+			});
+		}
+
+		mGrid = grid;
+	}
+}
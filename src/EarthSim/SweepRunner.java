@@ -0,0 +1,139 @@
+package EarthSim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import core.Config;
+import core.StateView;
+
+/**
+ * Runs a simulation for every combination of grid spacing and timestep at
+ * the same time, in one JVM.  Each run has its own configuration, and so its
+ * own buffer, and the runs share a fixed pool of worker threads.  Every run
+ * publishes its states to its buffer and drains them itself, as the
+ * unthreaded master control does.  Reports the throughput of each run and
+ * of the sweep as a whole.
+ *
+ * Usage: java EarthSim.SweepRunner [-g #,#,...] [-m #,#,...] [-n #] [-w #] [-b #] [-l] [-e #|#m] [-k ...] [-f]
+ *   -g   grid spacings (Default is 15)
+ *   -m   timesteps in minutes (Default is 1)
+ *   -n   steps in each run (Default is 1440)
+ *   -w   worker threads shared by the runs (Default is the number of processors)
+ * Any other arguments are passed to the configuration of every run as for EarthSim.Demo.
+ */
+public class SweepRunner {
+
+	public static void main(String[] args) throws Exception {
+		String spacings = "15";
+		String timesteps = "1";
+		String steps = "1440";
+		int workers = Runtime.getRuntime().availableProcessors();
+		List<String> configArgs = new ArrayList<String>();
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("-g") || args[i].equals("-m") || args[i].equals("-n") || args[i].equals("-w")) {
+				if(i + 1 >= args.length)
+					throw new IllegalArgumentException("A value must follow the " + args[i] + " flag");
+			}
+			if(args[i].equals("-g"))
+				spacings = args[++i];
+			else if(args[i].equals("-m"))
+				timesteps = args[++i];
+			else if(args[i].equals("-n"))
+				steps = args[++i];
+			else if(args[i].equals("-w"))
+				workers = Integer.parseInt(args[++i]);
+			else
+				configArgs.add(args[i]);
+		}
+
+		List<Run> runs = new ArrayList<Run>();
+		for(String spacing : spacings.split(",")) {
+			for(String timestep : timesteps.split(",")) {
+				List<String> runArgs = new ArrayList<String>(configArgs);
+				runArgs.add("-H");
+				runArgs.add("-g");
+				runArgs.add(spacing);
+				runArgs.add("-m");
+				runArgs.add(timestep);
+				runArgs.add("-n");
+				runArgs.add(steps);
+				runs.add(new Run(Config.parse(runArgs.toArray(new String[runArgs.size()]))));
+			}
+		}
+
+		System.out.printf("Sweeping %d runs on %d workers\n", runs.size(), workers);
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		List<Future<Run>> results = new ArrayList<Future<Run>>();
+		long start = System.nanoTime();
+		for(Run run : runs)
+			results.add(pool.submit(run));
+
+		System.out.printf("%-8s %-8s %10s %10s %10s %12s\n", "spacing", "timestep", "steps", "frames", "wall s", "steps/sec");
+		long totalSteps = 0;
+		long totalCells = 0;
+		long elapsed;
+		try {
+			for(Future<Run> result : results) {
+				Run run = result.get();
+				System.out.printf("%-8s %-8d %10d %10d %10.3f %12.1f\n",
+						run.config.getSpacing(), run.timestep, run.steps, run.frames,
+						run.nanos / 1e9, run.steps * 1e9 / run.nanos);
+				totalSteps += run.steps;
+				totalCells += run.steps * run.cells;
+			}
+			elapsed = System.nanoTime() - start;
+		}
+		finally {
+			//even when a run failed, so the idle workers do not keep the JVM alive
+			pool.shutdown();
+		}
+
+		double seconds = elapsed / 1e9;
+		System.out.printf("Sweep wall time: %.3f s\n", seconds);
+		System.out.printf("Aggregate throughput: %.1f steps/s, %.3g cell updates/s\n",
+				totalSteps / seconds, totalCells / seconds);
+	}
+
+	/**
+	 * One simulation of the sweep, with its own configuration.  Holds its
+	 * results once it has run.
+	 */
+	private static class Run implements Callable<Run> {
+
+		private final Config config;
+		//timestep the simulation ran with, after clamping
+		private int timestep;
+		private long steps;
+		private long frames;
+		private long cells;
+		private long nanos;
+
+		Run(Config config) {
+			this.config = config;
+		}
+
+		public Run call() {
+			Simulation simulation = new Simulation(config, config.getSpacing(), config.getTimestep());
+			SimulationGrid grid = simulation.getGrid();
+			timestep = simulation.mTimestep;
+			cells = (long) grid.mWidth * grid.mHeight;
+
+			long start = System.nanoTime();
+			while(simulation.getRunningTime() / simulation.mTimestep < config.getStepCount()) {
+				simulation.produce();
+				StateView state;
+				while((state = config.pollState()) != null) {
+					frames++;
+					config.releaseState(state);
+				}
+			}
+			nanos = System.nanoTime() - start;
+			steps = simulation.getRunningTime() / simulation.mTimestep;
+			return this;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package benchmark;
+
+import core.Config;
+import core.ThreadedEnum;
+
+/**
+ * Runs two threads that make the same Config calls as the inner loops of
+ * Simulation.run and DisplayModel.run, and reports how many loop
+ * iterations each completes per second while both run at once.
+ *
+ * Usage: java benchmark.ConfigContention [seconds]
+ * (Default is 5 seconds after a one second warmup)
+ */
+public class ConfigContention {
+
+	private static volatile boolean running = true;
+	private static volatile boolean measuring = false;
+
+	public static void main(String[] args) throws Exception {
+		int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		Config.buildGlobalConfig(new String[] {"-s", "-p", "-r"});
+
+		final long[] counts = new long[2];
+		Thread producer = new Thread(new Runnable() {
+			public void run() {
+				long count = 0;
+				while(running) {
+					//what Simulation checks each time round its loop
+					Config config = Config.getInstance();
+					if(config.getThreadingFlags().contains(ThreadedEnum.PRESENTATION)
+							&& config.requested())
+						config.completed();
+					config.getInitiative();
+					if(measuring)
+						count++;
+				}
+				counts[0] = count;
+			}
+		}, "simulation");
+		Thread consumer = new Thread(new Runnable() {
+			public void run() {
+				long count = 0;
+				while(running) {
+					//what DisplayModel checks each time round its loop
+					Config config = Config.getInstance();
+					if(config.getBuffer().isEmpty() && !config.requested())
+						config.request();
+					config.getInitiative();
+					if(measuring)
+						count++;
+				}
+				counts[1] = count;
+			}
+		}, "presentation");
+
+		producer.start();
+		consumer.start();
+		Thread.sleep(1000);
+		measuring = true;
+		long start = System.nanoTime();
+		Thread.sleep(seconds * 1000L);
+		measuring = false;
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		running = false;
+		producer.join();
+		consumer.join();
+
+		System.out.printf("Processors: %d\n", Runtime.getRuntime().availableProcessors());
+		System.out.printf("simulation loop:   %.1f M iterations/s\n", counts[0] / elapsed / 1e6);
+		System.out.printf("presentation loop: %.1f M iterations/s\n", counts[1] / elapsed / 1e6);
+		System.out.printf("combined:          %.1f M iterations/s\n", (counts[0] + counts[1]) / elapsed / 1e6);
+	}
+}
@@ -0,0 +1,120 @@
+package benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import EarthPresentation.DisplayModel;
+import EarthSim.Simulation;
+
+import core.BufferController;
+import core.Config;
+import core.FrameRing;
+import core.InitiativeEnum;
+import core.LatencyRecorder;
+import core.Lifecycle;
+import core.RunScope;
+
+/**
+ * Runs the simulation and presentation on their own threads and measures
+ * the latency from each simulation state being produced to its image being
+ * ready, along with how many steps are simulated and how many frames reach
+ * the presentation per second.
+ *
+ * Usage: java -cp src:resources benchmark.HandoffLatency [-d seconds] [-g spacing] [-r|-t] [-b #|auto] [-l] [-v] [...]
+ *   -d #   seconds to measure after a one second warmup (Default is 5)
+ *   -g #   grid spacing (Default is 15)
+ * Any other arguments are passed to the configuration as for EarthSim.Demo.
+ * Both components are always threaded.
+ */
+public class HandoffLatency {
+
+	public static void main(String[] args) throws Exception {
+		int seconds = 5;
+		double spacing = 15;
+		List<String> configArgs = new ArrayList<String>();
+		configArgs.add("-s");
+		configArgs.add("-p");
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("-d"))
+				seconds = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-g"))
+				spacing = Double.parseDouble(args[++i]);
+			else if(!args[i].equals("-s") && !args[i].equals("-p"))
+				configArgs.add(args[i]);
+		}
+		Config.buildGlobalConfig(configArgs.toArray(new String[configArgs.size()]));
+		Config config = Config.getInstance();
+
+		Boolean initiative = null;
+		if(config.getInitiative().equals(InitiativeEnum.PRESENTATION))
+			initiative = true;
+		else if(config.getInitiative().equals(InitiativeEnum.SIMULATION))
+			initiative = false;
+
+		Simulation simulation = new Simulation(spacing, 1);
+		DisplayModel model = new DisplayModel(400, 1000, initiative);
+		model.setGridSpacing(spacing);
+		Lifecycle lifecycle = new Lifecycle(config);
+		RunScope scope = new RunScope(config.getSettings().useVirtualThreads(), lifecycle);
+		simulation.setLifecycle(lifecycle);
+		model.setLifecycle(lifecycle);
+		if(config.getParallelism() > 1)
+			simulation.setExecutor(scope.newExecutor(config.getParallelism()));
+		if(config.getInitiative().equals(InitiativeEnum.PRESENTATION))
+			config.setNonInitativeObject(simulation);
+		else if(config.getInitiative().equals(InitiativeEnum.SIMULATION))
+			config.setNonInitativeObject(model);
+
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				//discard the per frame output from the presentation
+			}
+		}));
+
+		scope.fork("simulation", simulation);
+		scope.fork("presentation", model);
+
+		LatencyRecorder latency = model.getStepToImageLatency();
+		Thread.sleep(1000);
+		latency.reset();
+		long startSteps = simulation.getRunningTime();
+		long startDropped = config.getBuffer().getDroppedFrames();
+		Thread.sleep(seconds * 1000L);
+		long frames = latency.getCount();
+		long steps = (simulation.getRunningTime() - startSteps) / simulation.mTimestep;
+		long dropped = config.getBuffer().getDroppedFrames() - startDropped;
+
+		long stopStart = System.nanoTime();
+		boolean stopped = scope.close(1000);
+		long stopNanos = System.nanoTime() - stopStart;
+
+		System.setOut(out);
+		System.out.printf("Initiative %s, buffer %d (%s), spacing %s, %s threads\n",
+				config.getInitiative(), config.getBuffer().getCapacity(), config.getSettings().getBufferPolicy(), spacing,
+				scope.isVirtual() ? "virtual" : "platform");
+		System.out.printf("Steps: %d (%.1f/s), dropped %d\n", steps, steps / (double) seconds, dropped);
+		System.out.printf("Frames: %d (%.1f/s), stale %d, torn %d\n", frames, frames / (double) seconds,
+				model.getStaleFrames(), model.getTornFrames());
+		System.out.printf("Step-to-image latency: mean %.3f ms, p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms\n",
+				latency.getMean() / 1e6,
+				latency.getPercentile(50) / 1e6,
+				latency.getPercentile(90) / 1e6,
+				latency.getPercentile(99) / 1e6,
+				latency.getMax() / 1e6);
+		BufferController controller = config.getBufferController();
+		if(controller != null)
+			System.out.printf("Adaptive buffer: %d windows, grew %d, shrank %d, peak %d, memory limit %d, %d frames held; last window producer %.1f/s idle %.1f%%, consumer %.1f/s idle %.1f%%\n",
+					controller.getWindows(), controller.getGrowths(), controller.getShrinks(), controller.getPeakCapacity(),
+					controller.getCapacityLimit(), ((FrameRing) config.getBuffer()).getAllocatedFrames(),
+					controller.getProducerRate(), controller.getProducerIdleFraction() * 100,
+					controller.getConsumerRate(), controller.getConsumerIdleFraction() * 100);
+		System.out.printf("Stop and join: %.3f ms, %s\n", stopNanos / 1e6, stopped ? "all threads finished" : "threads still running");
+		if(scope.getFailure() != null)
+			scope.getFailure().printStackTrace();
+		System.exit(0);
+	}
+}
@@ -0,0 +1,213 @@
+package core;
+
+/**
+ * Chooses the capacity of an adaptive buffer from how long the producer and
+ * the consumer spend working on each frame and how long they wait between
+ * frames.
+ *
+ * Time is measured in windows.  When both sides waited for a noticeable part
+ * of a window, their rates match on average but not from frame to frame, and
+ * a larger buffer lets each carry on through the other's slow frames, so the
+ * capacity doubles.  When only one side waited, one is simply faster than the
+ * other and no capacity stops the faster one waiting; the extra frames only
+ * add latency, so after a few such windows in a row the capacity shrinks by
+ * one.  Each decision is counted and the rates and idle fractions of the last
+ * window are kept, so they can be reported.
+ *
+ * Every frame holds a copy of the whole grid, about 52 MB at the finest
+ * spacing, so the capacity is also kept low enough for all of the buffer's
+ * frames to fit in a quarter of the heap.  The limit follows the size of the
+ * frames the producer publishes, and a capacity above it is cut straight away.
+ */
+public class BufferController {
+
+	//most frames an adaptive buffer can be given
+	public static final int MAX_CAPACITY = 64;
+	//fraction of the largest heap the buffer's frames may take up together
+	private static final double HEAP_FRACTION = 0.25;
+	//shortest window, and fewest frames each side must finish in it, before deciding
+	private static final long WINDOW_NANOS = 250000000L;
+	private static final int WINDOW_FRAMES = 4;
+	//fraction of a window a side may wait without counting as idle
+	private static final double IDLE_THRESHOLD = 0.05;
+	//one sided windows in a row before shrinking, so a grown buffer is not shrunk straight back
+	private static final int SHRINK_WINDOWS = 4;
+
+	private volatile int capacity;
+	//bytes all of the buffer's frames may take up, and the capacity that fits in them
+	private final long memoryLimit;
+	private volatile int capacityLimit = MAX_CAPACITY;
+
+	//current window, guarded by this
+	private long windowStart;
+	private long producerEnd;
+	private long producerWork;
+	private long producerIdle;
+	private int producerFrames;
+	private long consumerEnd;
+	private long consumerWork;
+	private long consumerIdle;
+	private int consumerFrames;
+	private int oneSidedWindows;
+
+	//results of the last window, for reporting
+	private volatile double producerRate;
+	private volatile double consumerRate;
+	private volatile double producerIdleFraction;
+	private volatile double consumerIdleFraction;
+	private volatile long windows;
+	private volatile long growths;
+	private volatile long shrinks;
+	private volatile int peakCapacity;
+
+	public BufferController(int initialCapacity) {
+		this(initialCapacity, (long) (Runtime.getRuntime().maxMemory() * HEAP_FRACTION));
+	}
+
+	/**
+	 * @param memoryLimit Bytes all of the buffer's frames may take up together
+	 */
+	public BufferController(int initialCapacity, long memoryLimit) {
+		this.capacity = Math.max(1, Math.min(MAX_CAPACITY, initialCapacity));
+		this.peakCapacity = capacity;
+		this.memoryLimit = memoryLimit;
+	}
+
+	/**
+	 * @return Capacity the buffer should have now
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Records a frame the consumer finished.  The wait is the time since it
+	 * finished the one before.
+	 */
+	public synchronized void consumerWorked(long startNanos, long endNanos) {
+		if(consumerEnd != 0)
+			consumerIdle += Math.max(0, startNanos - consumerEnd);
+		consumerWork += endNanos - startNanos;
+		consumerEnd = endNanos;
+		consumerFrames++;
+	}
+
+	/**
+	 * @return Largest capacity whose frames fit in the memory limit
+	 */
+	public int getCapacityLimit() {
+		return capacityLimit;
+	}
+
+	/**
+	 * Records a frame the producer finished and, once the window is long
+	 * enough, decides the capacity for the next one.  Only called by the
+	 * producer, so only it ever resizes the buffer.
+	 * @param frameBytes Size of the frame's temperatures, or 0 if not known
+	 * @return true if the capacity changed
+	 */
+	public synchronized boolean producerWorked(long startNanos, long endNanos, long frameBytes) {
+		if(producerEnd != 0)
+			producerIdle += Math.max(0, startNanos - producerEnd);
+		producerWork += endNanos - startNanos;
+		producerEnd = endNanos;
+		producerFrames++;
+
+		//the ring holds one frame more than its capacity
+		if(frameBytes > 0)
+			capacityLimit = (int) Math.max(1, Math.min(MAX_CAPACITY, memoryLimit / frameBytes - 1));
+		if(capacity > capacityLimit) {
+			capacity = capacityLimit;
+			shrinks++;
+			return true;
+		}
+
+		if(windowStart == 0) {
+			windowStart = startNanos;
+			return false;
+		}
+		long elapsed = endNanos - windowStart;
+		if(elapsed < WINDOW_NANOS || producerFrames < WINDOW_FRAMES || consumerFrames < WINDOW_FRAMES)
+			return false;
+
+		producerRate = producerFrames * 1e9 / elapsed;
+		consumerRate = consumerFrames * 1e9 / elapsed;
+		producerIdleFraction = producerIdle / (double) (producerIdle + producerWork);
+		consumerIdleFraction = consumerIdle / (double) (consumerIdle + consumerWork);
+		windows++;
+		boolean producerWaited = producerIdleFraction > IDLE_THRESHOLD;
+		boolean consumerWaited = consumerIdleFraction > IDLE_THRESHOLD;
+
+		int next = capacity;
+		if(producerWaited && consumerWaited) {
+			oneSidedWindows = 0;
+			next = Math.min(capacityLimit, capacity * 2);
+		}
+		else if(producerWaited || consumerWaited) {
+			if(++oneSidedWindows >= SHRINK_WINDOWS) {
+				oneSidedWindows = 0;
+				next = Math.max(1, capacity - 1);
+			}
+		}
+		else
+			oneSidedWindows = 0;
+
+		windowStart = endNanos;
+		producerWork = producerIdle = consumerWork = consumerIdle = 0;
+		producerFrames = consumerFrames = 0;
+
+		if(next == capacity)
+			return false;
+		if(next > capacity)
+			growths++;
+		else
+			shrinks++;
+		capacity = next;
+		peakCapacity = Math.max(peakCapacity, next);
+		return true;
+	}
+
+	/**
+	 * @return Frames per second the producer finished in the last window
+	 */
+	public double getProducerRate() {
+		return producerRate;
+	}
+
+	/**
+	 * @return Frames per second the consumer finished in the last window
+	 */
+	public double getConsumerRate() {
+		return consumerRate;
+	}
+
+	/**
+	 * @return Fraction of the last window the producer spent waiting
+	 */
+	public double getProducerIdleFraction() {
+		return producerIdleFraction;
+	}
+
+	/**
+	 * @return Fraction of the last window the consumer spent waiting
+	 */
+	public double getConsumerIdleFraction() {
+		return consumerIdleFraction;
+	}
+
+	public long getWindows() {
+		return windows;
+	}
+
+	public long getGrowths() {
+		return growths;
+	}
+
+	public long getShrinks() {
+		return shrinks;
+	}
+
+	public int getPeakCapacity() {
+		return peakCapacity;
+	}
+}
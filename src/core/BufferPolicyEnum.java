@@ -0,0 +1,7 @@
+package core;
+
+public enum BufferPolicyEnum {
+	QUEUE,
+	LATEST,
+	ADAPTIVE,
+}
@@ -1,17 +1,48 @@
 package core;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.EnumSet;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 public class Config {
 	
-	private static Config instance = null;
+	private static volatile Config instance = null;
 	
-	public static void buildGlobalConfig(String[] args){
+	/**
+	 * Builds the configuration used by getInstance, for the application's single run.
+	 */
+	public static synchronized void buildGlobalConfig(String[] args){
 		if(instance != null)
 			throw new IllegalStateException("This method cannot be called more than once globally");
 		
+		instance = parse(args);
+	}
+	
+	/**
+	 * Builds the configuration for one run without making it global.  Each
+	 * configuration has its own buffer, initiative flag and settings, so any
+	 * number of runs can exist at once.
+	 */
+	public static Config parse(String[] args){
 		int bufferSize = 0;
+		BufferPolicyEnum bufferPolicy = null;
+		int parallelism = 0;
+		KernelEnum kernel = null;
+		PrecisionEnum precision = null;
+		boolean headless = false;
+		double spacing = 0;
+		int timestep = 0;
+		int steps = 0;
+		int publishEvery = 0;
+		boolean publishInMinutes = false;
+		boolean virtualThreads = false;
+		Palette palette = null;
 		InitiativeEnum initiative = null;
 		EnumSet<ThreadedEnum> threading = EnumSet.noneOf(ThreadedEnum.class);
 		
@@ -32,17 +63,25 @@ public class Config {
 				if(initiative == null)
 					initiative = InitiativeEnum.PRESENTATION;
 				else
-					throw new IllegalArgumentException("-r & -s flags are mutually exclusive");
+					throw new IllegalArgumentException("-r & -t flags are mutually exclusive");
 			}
-			else if(args[i].equals("-s")) {
+			else if(args[i].equals("-t")) {
 				if(initiative == null)
 					initiative = InitiativeEnum.SIMULATION;
 				else
-					throw new IllegalArgumentException("-r & -s flags are mutually exclusive");
+					throw new IllegalArgumentException("-r & -t flags are mutually exclusive");
 			}
 			else if(args[i].equals("-b")) {
-				if(bufferSize > 0)
+				if(bufferSize > 0 || bufferPolicy == BufferPolicyEnum.ADAPTIVE)
 					throw new IllegalArgumentException("-b flag cannot be used twice");
+				else if(i + 1 < args.length && args[i + 1].equals("auto")) {
+					if(bufferPolicy != null)
+						throw new IllegalArgumentException("-b auto & -l flags are mutually exclusive");
+					bufferPolicy = BufferPolicyEnum.ADAPTIVE;
+					i++;
+				}
+				else if(i + 1 >= args.length)
+					throw new IllegalArgumentException("A number greater than 0, or auto, must follow the -b flag");
 				else {
 					try {
 						bufferSize = Integer.parseInt(args[++i]);
@@ -54,69 +93,381 @@ public class Config {
 					}
 				}
 			}
+			else if(args[i].equals("-l")) {
+				if(bufferPolicy == null)
+					bufferPolicy = BufferPolicyEnum.LATEST;
+				else if(bufferPolicy == BufferPolicyEnum.ADAPTIVE)
+					throw new IllegalArgumentException("-b auto & -l flags are mutually exclusive");
+				else
+					throw new IllegalArgumentException("-l flag cannot be used twice");
+			}
+			else if(args[i].equals("-j")) {
+				if(parallelism > 0)
+					throw new IllegalArgumentException("-j flag cannot be used twice");
+				else if(i + 1 >= args.length)
+					throw new IllegalArgumentException("A number greater than 0 must follow the -j flag");
+				else {
+					try {
+						parallelism = Integer.parseInt(args[++i]);
+						if(parallelism < 1)
+							throw new IllegalArgumentException("Parallelism must be greater than 0");
+					}
+					catch(NumberFormatException ex) {
+						throw new IllegalArgumentException("A number greater than 0 must follow the -j flag", ex);
+					}
+				}
+			}
+			else if(args[i].equals("-f")) {
+				if(precision == null)
+					precision = PrecisionEnum.FLOAT;
+				else
+					throw new IllegalArgumentException("-f flag cannot be used twice");
+			}
+			else if(args[i].equals("-v")) {
+				if(!virtualThreads)
+					virtualThreads = true;
+				else
+					throw new IllegalArgumentException("-v flag cannot be used twice");
+			}
+			else if(args[i].equals("-C")) {
+				if(palette != null)
+					throw new IllegalArgumentException("-C flag cannot be used twice");
+				else if(i + 1 >= args.length)
+					throw new IllegalArgumentException("A palette file must follow the -C flag");
+				else {
+					try {
+						palette = Palette.load(new File(args[++i]));
+					}
+					catch(IOException ex) {
+						throw new IllegalArgumentException("Could not read palette " + args[i] + ": " + ex.getMessage(), ex);
+					}
+				}
+			}
+			else if(args[i].equals("-H")) {
+				if(!headless)
+					headless = true;
+				else
+					throw new IllegalArgumentException("-H flag cannot be used twice");
+			}
+			else if(args[i].equals("-g")) {
+				if(spacing > 0)
+					throw new IllegalArgumentException("-g flag cannot be used twice");
+				else if(i + 1 >= args.length)
+					throw new IllegalArgumentException("A number greater than 0 must follow the -g flag");
+				else {
+					try {
+						spacing = Double.parseDouble(args[++i]);
+						if(spacing <= 0)
+							throw new IllegalArgumentException("Grid spacing must be greater than 0");
+					}
+					catch(NumberFormatException ex) {
+						throw new IllegalArgumentException("A number greater than 0 must follow the -g flag", ex);
+					}
+				}
+			}
+			else if(args[i].equals("-m")) {
+				if(timestep > 0)
+					throw new IllegalArgumentException("-m flag cannot be used twice");
+				else if(i + 1 >= args.length)
+					throw new IllegalArgumentException("A number greater than 0 must follow the -m flag");
+				else {
+					try {
+						timestep = Integer.parseInt(args[++i]);
+						if(timestep < 1)
+							throw new IllegalArgumentException("Timestep must be greater than 0");
+					}
+					catch(NumberFormatException ex) {
+						throw new IllegalArgumentException("A number greater than 0 must follow the -m flag", ex);
+					}
+				}
+			}
+			else if(args[i].equals("-n")) {
+				if(steps > 0)
+					throw new IllegalArgumentException("-n flag cannot be used twice");
+				else if(i + 1 >= args.length)
+					throw new IllegalArgumentException("A number greater than 0 must follow the -n flag");
+				else {
+					try {
+						steps = Integer.parseInt(args[++i]);
+						if(steps < 1)
+							throw new IllegalArgumentException("Step count must be greater than 0");
+					}
+					catch(NumberFormatException ex) {
+						throw new IllegalArgumentException("A number greater than 0 must follow the -n flag", ex);
+					}
+				}
+			}
+			else if(args[i].equals("-e")) {
+				if(publishEvery > 0)
+					throw new IllegalArgumentException("-e flag cannot be used twice");
+				else if(i + 1 >= args.length)
+					throw new IllegalArgumentException("A number of steps, or minutes ending in m, must follow the -e flag");
+				else {
+					String value = args[++i];
+					if(value.endsWith("m")) {
+						publishInMinutes = true;
+						value = value.substring(0, value.length() - 1);
+					}
+					try {
+						publishEvery = Integer.parseInt(value);
+						if(publishEvery < 1)
+							throw new IllegalArgumentException("Publish interval must be greater than 0");
+					}
+					catch(NumberFormatException ex) {
+						throw new IllegalArgumentException("A number of steps, or minutes ending in m, must follow the -e flag", ex);
+					}
+				}
+			}
+			else if(args[i].equals("-k")) {
+				if(kernel != null)
+					throw new IllegalArgumentException("-k flag cannot be used twice");
+				else if(i + 1 >= args.length)
+					throw new IllegalArgumentException("A kernel name must follow the -k flag");
+				else {
+					try {
+						kernel = KernelEnum.valueOf(args[++i].toUpperCase());
+					}
+					catch(IllegalArgumentException ex) {
+						throw new IllegalArgumentException("Unknown kernel: " + args[i], ex);
+					}
+				}
+			}
 		}
 		
-		instance = new Config(bufferSize, threading, initiative);
+		if(!headless && (spacing > 0 || timestep > 0 || steps > 0))
+			throw new IllegalArgumentException("-g, -m and -n can only be used with -H");
+		
+		if(!headless && bufferPolicy == BufferPolicyEnum.ADAPTIVE && threading.size() < 2)
+			throw new IllegalArgumentException("-b auto can only be used with both -s and -p");
+		
+		return new Config(new Settings(bufferSize, bufferPolicy, threading, initiative, parallelism, kernel, precision,
+				headless, spacing, timestep, steps, publishEvery, publishInMinutes, virtualThreads, palette));
 	}
 
-	public static synchronized Config getInstance() {
-		if(instance == null)
+	public static Config getInstance() {
+		Config config = instance;
+		if(config == null)
 			throw new IllegalStateException("buildGlobalConfiguration must be called before this method can be used");
 		
-		return instance;
+		return config;
 	}
 
-	private final ArrayBlockingQueue<SimulationState> buffer;
-	private final EnumSet<ThreadedEnum> threadingFlags;
-	private final InitiativeEnum initiative;
+	//Immutable, so the getters below need no locking
+	private final Settings settings;
+	//Replaced rather than emptied by clearBuffer, so neither side has to be stopped first
+	private volatile FrameBuffer buffer;
+	//Resizes the buffer with the ADAPTIVE policy, null otherwise
+	private final BufferController bufferController;
 	
-	private boolean initativeFlag;
-	private Object nonInitativeComponent;
+	private final AtomicBoolean initativeFlag = new AtomicBoolean();
+	private volatile Object nonInitativeComponent;
 	
-	private Config(int bufferSize, EnumSet<ThreadedEnum> threading, InitiativeEnum initiative) {
-		if(bufferSize == 0)
-			bufferSize = 1;
-		
-		this.buffer = new ArrayBlockingQueue<SimulationState>(bufferSize);
-		this.threadingFlags = threading;
-		if(initiative == null)
-			this.initiative = InitiativeEnum.MASTER_CONTROL;
+	//Wakes threads waiting for the buffer, the initiative flag, pause or stop to change
+	private final AtomicLong handoffGeneration = new AtomicLong();
+	private final Queue<Thread> handoffWaiters = new ConcurrentLinkedQueue<Thread>();
+	
+	public Config(Settings settings) {
+		this.settings = settings;
+		if(settings.getBufferPolicy() == BufferPolicyEnum.ADAPTIVE)
+			this.bufferController = new BufferController(settings.getBufferSize());
 		else
-			this.initiative = initiative;
+			this.bufferController = null;
+		this.buffer = createBuffer(1);
+	}
+	
+	private FrameBuffer createBuffer(long firstSequence) {
+		if(settings.getBufferPolicy() == BufferPolicyEnum.LATEST)
+			return new LatestFrameBuffer(firstSequence);
+		else if(bufferController != null)
+			return new FrameRing(bufferController.getCapacity(), BufferController.MAX_CAPACITY, firstSequence);
+		else
+			return new FrameRing(settings.getBufferSize(), firstSequence);
+	}
+
+	public Settings getSettings() {
+		return settings;
 	}
 
-	public synchronized ArrayBlockingQueue<SimulationState> getBuffer() {
+	public FrameBuffer getBuffer() {
 		return buffer;
 	}
 
-	public synchronized EnumSet<ThreadedEnum> getThreadingFlags() {
-		return threadingFlags;
+	public Set<ThreadedEnum> getThreadingFlags() {
+		return settings.getThreadingFlags();
 	}
 
-	public synchronized InitiativeEnum getInitiative() {
-		return initiative;
+	public InitiativeEnum getInitiative() {
+		return settings.getInitiative();
+	}
+	
+	public int getParallelism() {
+		return settings.getParallelism();
+	}
+	
+	public KernelEnum getKernel() {
+		return settings.getKernel();
+	}
+	
+	public PrecisionEnum getPrecision() {
+		return settings.getPrecision();
+	}
+	
+	public boolean isHeadless() {
+		return settings.isHeadless();
+	}
+	
+	public double getSpacing() {
+		return settings.getSpacing();
+	}
+	
+	public int getTimestep() {
+		return settings.getTimestep();
+	}
+	
+	public int getStepCount() {
+		return settings.getStepCount();
 	}
 	
-	public synchronized boolean requested() {
-		return initativeFlag;
+	public boolean requested() {
+		return initativeFlag.get();
 	}
 	
-	public synchronized void completed() {
-		if(initativeFlag)
-			initativeFlag = false;
+	public void completed() {
+		if(initativeFlag.compareAndSet(true, false))
+			signalHandoff();
 	}
 	
-	public synchronized void request() {
-		if(!initativeFlag)
-			initativeFlag = true;
+	public void request() {
+		if(initativeFlag.compareAndSet(false, true))
+			signalHandoff();
 	}
 	
-	public synchronized Object getNonInitativeObject(){
+	public Object getNonInitativeObject(){
 		return nonInitativeComponent;
 	}
 	
-	public synchronized void setNonInitativeObject(Object opposite) {
+	public void setNonInitativeObject(Object opposite) {
 		nonInitativeComponent = opposite;
 	}
+	
+	/**
+	 * Claims the next free frame in the buffer for the producer to fill.
+	 * @return The frame, or null if the buffer is full.  Never null with the LATEST policy.
+	 */
+	public SimulationState claimState() {
+		return buffer.claim();
+	}
+	
+	/**
+	 * Publishes a frame returned by claimState and wakes anything waiting on the buffer.
+	 * @return false if the buffer was cleared since the frame was claimed
+	 */
+	public boolean publishState(SimulationState state) {
+		if(!buffer.publish(state))
+			return false;
+		signalHandoff();
+		return true;
+	}
+	
+	/**
+	 * Takes the oldest published frame without blocking.  It must be passed to
+	 * releaseState once it is no longer needed.
+	 * @return The frame, or null if the buffer is empty
+	 */
+	public StateView pollState() {
+		return buffer.poll();
+	}
+	
+	/**
+	 * Hands a frame returned by pollState back to the producer and wakes it if waiting.
+	 */
+	public void releaseState(StateView state) {
+		if(buffer.release(state))
+			signalHandoff();
+	}
+	
+	/**
+	 * Producer only.  Records how long the frame just published took, so an
+	 * adaptive buffer can be resized.
+	 * @param startNanos System.nanoTime() when the producer started the frame
+	 */
+	public void recordProduced(long startNanos) {
+		if(bufferController == null)
+			return;
+		FrameBuffer current = buffer;
+		long frameBytes = current instanceof FrameRing ? ((FrameRing) current).getFrameBytes() : 0;
+		if(bufferController.producerWorked(startNanos, System.nanoTime(), frameBytes)) {
+			if(current instanceof FrameRing)
+				((FrameRing) current).setCapacity(bufferController.getCapacity());
+			//a grown buffer has room for the producer if it was waiting
+			signalHandoff();
+		}
+	}
+	
+	/**
+	 * Consumer only.  Records how long the frame just released took.
+	 * @param startNanos System.nanoTime() when the consumer started the frame
+	 */
+	public void recordConsumed(long startNanos) {
+		if(bufferController != null)
+			bufferController.consumerWorked(startNanos, System.nanoTime());
+	}
+	
+	/**
+	 * @return Controller resizing the buffer, or null unless the policy is ADAPTIVE
+	 */
+	public BufferController getBufferController() {
+		return bufferController;
+	}
+	
+	/**
+	 * Empties the buffer by replacing it and wakes anything waiting on it.
+	 * Sequence numbers carry on from the old buffer.
+	 */
+	public void clearBuffer() {
+		buffer = createBuffer(buffer.getNextSequence());
+		signalHandoff();
+	}
+	
+	/**
+	 * Read this before checking whatever is being waited for, then pass it to
+	 * awaitHandoff so a change made in between is not missed.
+	 * @return Number of handoff signals so far
+	 */
+	public long getHandoffGeneration() {
+		return handoffGeneration.get();
+	}
+	
+	/**
+	 * Parks until signalHandoff has been called since the generation was read.
+	 * @param generation Value returned by getHandoffGeneration
+	 * @return false if the thread was interrupted
+	 */
+	public boolean awaitHandoff(long generation) {
+		Thread thread = Thread.currentThread();
+		handoffWaiters.add(thread);
+		try {
+			//registered before checking again, so a signal in between still unparks us
+			while(handoffGeneration.get() == generation) {
+				LockSupport.park(this);
+				if(thread.isInterrupted())
+					return false;
+			}
+			return true;
+		}
+		finally {
+			handoffWaiters.remove(thread);
+		}
+	}
+	
+	/**
+	 * Wakes every thread in awaitHandoff so it can check what it is waiting for.
+	 * Called when the buffer or initiative flag changes and on pause, resume and stop.
+	 */
+	public void signalHandoff() {
+		handoffGeneration.incrementAndGet();
+		for(Thread waiter : handoffWaiters)
+			LockSupport.unpark(waiter);
+	}
 
-}
+}
\ No newline at end of file
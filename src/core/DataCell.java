@@ -24,7 +24,7 @@ public class DataCell implements Cloneable {
 		this.temperature = other.temperature;
 	}
 
-	public DataCell(double lat, double lon, int spacing, double temp) {
+	public DataCell(double lat, double lon, double spacing, double temp) {
 		this.latitude = lat;
 		this.longitude = lon;
 		this.sideLength = calculateSideLength(spacing);
@@ -36,11 +36,11 @@ public class DataCell implements Cloneable {
 		this.temperature = temp;
 	}
 
-	private double calculateSideLength(int spacing) {
+	private double calculateSideLength(double spacing) {
 		return (spacing / 360f) * Constants.EARTH_CIRCUMFERENCE;
 	}
 
-	private double calculateUpperWidth(int spacing) {
+	private double calculateUpperWidth(double spacing) {
 		return Math.cos(2f * Math.PI * (this.latitude + spacing) / 360) * this.sideLength;
 	}
 	
@@ -0,0 +1,66 @@
+package core;
+
+/**
+ * Buffer of reusable SimulationState frames between one producer and one
+ * consumer.
+ *
+ * The producer claims a frame, fills it and publishes it.  The consumer polls
+ * a published frame and releases it once it is done with it.  Claiming and
+ * publishing must only be done by one thread at a time, as must polling and
+ * releasing.  publish and release ignore frames that did not come from this
+ * buffer, so a component still holding a frame from a buffer that has been
+ * replaced cannot disturb the new one.
+ */
+public interface FrameBuffer {
+
+	/**
+	 * @return Most frames that can be published and not yet polled
+	 */
+	int getCapacity();
+
+	/**
+	 * @return Number of frames published and not yet polled
+	 */
+	int size();
+
+	boolean isEmpty();
+
+	/**
+	 * @return true if publishing another frame would have to wait or replace one
+	 */
+	boolean isFull();
+
+	/**
+	 * @return Sequence number the next published frame will get
+	 */
+	long getNextSequence();
+
+	/**
+	 * @return Number of published frames replaced before the consumer polled them
+	 */
+	long getDroppedFrames();
+
+	/**
+	 * Producer only.
+	 * @return The next frame to fill, or null if none is free
+	 */
+	SimulationState claim();
+
+	/**
+	 * Producer only.  Makes a claimed frame visible to the consumer.
+	 * @return false if the frame is not the one last claimed from this buffer
+	 */
+	boolean publish(SimulationState frame);
+
+	/**
+	 * Consumer only.
+	 * @return The next frame to read, or null if there is none
+	 */
+	StateView poll();
+
+	/**
+	 * Consumer only.  Hands a polled frame back to the producer.
+	 * @return false if the frame is not the one to release next from this buffer
+	 */
+	boolean release(StateView frame);
+}
@@ -0,0 +1,187 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single producer, single consumer ring of reused SimulationState frames.
+ *
+ * The consumer polls the oldest published frame and releases it once it is
+ * done with it, which makes the frame free to be claimed again.  Up to
+ * capacity frames can be published and not yet polled; one more frame is kept
+ * so the producer can fill a full buffer while the consumer still holds the
+ * last frame it polled.  Nothing is allocated or locked once every frame has
+ * been used once.  Frames are never dropped; claim returns null when the ring
+ * is full and the producer has to wait.
+ *
+ * Released frames go back to the producer through a second ring of free
+ * frames, and the producer only makes a new frame when none is free, so no
+ * more than capacity + 1 frames are ever made.  A ring can be given room for
+ * more frames than its capacity, in which case the producer can change the
+ * capacity while it runs.  Frames released while the ring has more than
+ * capacity + 1 of them are dropped and their temperatures freed.
+ */
+public class FrameRing implements FrameBuffer {
+
+	//published frames by position, until released
+	private final SimulationState[] frames;
+	//released frames waiting to be claimed again, by the number freed before them
+	private final SimulationState[] free;
+	private volatile int capacity;
+
+	//frames published so far, written only by the producer
+	private final AtomicLong published = new AtomicLong();
+	//frames released so far, written only by the consumer
+	private final AtomicLong released = new AtomicLong();
+	//frames polled so far, written only by the consumer
+	private volatile long taken;
+	//frames put in the free ring so far, written only by the consumer
+	private final AtomicLong freed = new AtomicLong();
+	//frames taken back out of the free ring, producer only
+	private long reclaimed;
+	//frames made and not dropped
+	private final AtomicInteger allocated = new AtomicInteger();
+	//frame claimed and not yet published, producer only
+	private SimulationState claimed;
+	//size of the temperatures of the last frame published, producer only
+	private long frameBytes;
+	//sequence number given to the first frame published
+	private final long firstSequence;
+
+	public FrameRing(int capacity) {
+		this(capacity, 1);
+	}
+
+	/**
+	 * @param firstSequence Sequence number of the first frame published, so a
+	 * replacement ring can carry on from the one it replaces
+	 */
+	public FrameRing(int capacity, long firstSequence) {
+		this(capacity, capacity, firstSequence);
+	}
+
+	/**
+	 * @param maxCapacity Largest capacity setCapacity can give the ring
+	 */
+	public FrameRing(int capacity, int maxCapacity, long firstSequence) {
+		this.capacity = capacity;
+		this.firstSequence = firstSequence;
+		this.frames = new SimulationState[maxCapacity + 1];
+		this.free = new SimulationState[maxCapacity + 1];
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Producer only.  When shrinking, frames already published stay in the
+	 * ring and the producer waits until the consumer has taken enough of them.
+	 * The frames beyond the new capacity are dropped as they are released.
+	 * @param capacity Between 1 and the ring's maximum capacity
+	 */
+	public void setCapacity(int capacity) {
+		this.capacity = Math.max(1, Math.min(frames.length - 1, capacity));
+	}
+
+	/**
+	 * @return Number of frames the ring holds, in use or free
+	 */
+	public int getAllocatedFrames() {
+		return allocated.get();
+	}
+
+	/**
+	 * Producer only.
+	 * @return Bytes of temperatures in the last frame published, 0 before the first
+	 */
+	public long getFrameBytes() {
+		return frameBytes;
+	}
+
+	public int size() {
+		return (int) (published.get() - taken);
+	}
+
+	public boolean isEmpty() {
+		return taken >= published.get();
+	}
+
+	public boolean isFull() {
+		long next = published.get();
+		int limit = capacity;
+		return next - taken >= limit || next - released.get() >= limit + 1;
+	}
+
+	public long getNextSequence() {
+		return firstSequence + published.get();
+	}
+
+	public long getDroppedFrames() {
+		return 0;
+	}
+
+	public SimulationState claim() {
+		if(isFull())
+			return null;
+		if(claimed != null)
+			return claimed;
+		if(reclaimed < freed.get()) {
+			//left in the free ring, as only the consumer writes it
+			claimed = free[(int) (reclaimed % free.length)];
+			reclaimed++;
+		}
+		else {
+			claimed = new SimulationState();
+			allocated.incrementAndGet();
+		}
+		return claimed;
+	}
+
+	public boolean publish(SimulationState frame) {
+		if(frame == null || frame != claimed)
+			return false;
+		long next = published.get();
+		frames[(int) (next % frames.length)] = frame;
+		frame.publish(firstSequence + next);
+		frameBytes = (long) frame.getWidth() * frame.getHeight() * 8;
+		claimed = null;
+		published.lazySet(next + 1);
+		return true;
+	}
+
+	/**
+	 * @return The oldest published frame, or null if the ring is empty
+	 */
+	public StateView poll() {
+		long next = taken;
+		if(next >= published.get())
+			return null;
+		taken = next + 1;
+		return frames[(int) (next % frames.length)];
+	}
+
+	/**
+	 * Frames are released in the order they were polled.
+	 */
+	public boolean release(StateView frame) {
+		long next = released.get();
+		int index = (int) (next % frames.length);
+		if(next >= taken || frames[index] != frame)
+			return false;
+		SimulationState state = frames[index];
+		frames[index] = null;
+		if(allocated.get() > capacity + 1) {
+			//the ring shrank, so this frame is one too many
+			allocated.decrementAndGet();
+			state.discard();
+		}
+		else {
+			long count = freed.get();
+			free[(int) (count % free.length)] = state;
+			freed.lazySet(count + 1);
+		}
+		released.lazySet(next + 1);
+		return true;
+	}
+}
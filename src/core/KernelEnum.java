@@ -0,0 +1,8 @@
+package core;
+
+public enum KernelEnum {
+	SEQUENTIAL,
+	STANDARD,
+	FUSED,
+	VECTOR
+}
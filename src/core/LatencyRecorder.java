@@ -0,0 +1,63 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Collects latency samples in nanoseconds and reports percentiles over them.
+ * Keeps at most MAX_SAMPLES; later samples still count towards the mean
+ * and max but are not kept for percentiles.
+ */
+public class LatencyRecorder {
+
+	private static final int MAX_SAMPLES = 1 << 20;
+
+	private long[] samples = new long[1024];
+	private int kept;
+	private long count;
+	private long total;
+	private long max;
+
+	public synchronized void record(long nanos) {
+		if(kept < MAX_SAMPLES) {
+			if(kept == samples.length)
+				samples = Arrays.copyOf(samples, samples.length * 2);
+			samples[kept++] = nanos;
+		}
+		count++;
+		total += nanos;
+		if(nanos > max)
+			max = nanos;
+	}
+
+	public synchronized void reset() {
+		kept = 0;
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	public synchronized long getMax() {
+		return max;
+	}
+
+	public synchronized double getMean() {
+		return count == 0 ? 0 : (double) total / count;
+	}
+
+	/**
+	 * @param percent Percentile between 0 and 100
+	 * @return Nearest-rank percentile of the kept samples, or 0 if there are none
+	 */
+	public synchronized long getPercentile(double percent) {
+		if(kept == 0)
+			return 0;
+		long[] sorted = Arrays.copyOf(samples, kept);
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(percent / 100.0 * kept);
+		return sorted[Math.max(0, rank - 1)];
+	}
+}
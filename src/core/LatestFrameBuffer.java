@@ -0,0 +1,117 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Buffer that only keeps the newest published frame, so the producer never
+ * waits for the consumer.  Publishing over a frame the consumer has not yet
+ * polled replaces it and counts it as dropped.
+ *
+ * Uses three frames: one the producer is filling, one the consumer is
+ * reading and one shared between them.  Publishing swaps the producer's frame
+ * with the shared one and polling swaps the consumer's frame with it, both
+ * with a single atomic exchange, so neither side ever touches the other's
+ * frame.
+ */
+public class LatestFrameBuffer implements FrameBuffer {
+
+	//set on the shared index when it holds a frame the consumer has not polled
+	private static final int FRESH = 4;
+	private static final int INDEX = 3;
+
+	private final SimulationState[] frames = new SimulationState[] {
+			new SimulationState(), new SimulationState(), new SimulationState()};
+
+	//index of the shared frame, plus FRESH
+	private final AtomicInteger shared = new AtomicInteger(0);
+	//index of the frame the producer fills, used only by the producer
+	private int back = 1;
+	//index of the frame the consumer reads, used only by the consumer
+	private int front = 2;
+
+	//written only by the producer
+	private volatile long nextSequence;
+	private volatile long dropped;
+
+	public LatestFrameBuffer() {
+		this(1);
+	}
+
+	/**
+	 * @param firstSequence Sequence number of the first frame published, so a
+	 * replacement buffer can carry on from the one it replaces
+	 */
+	public LatestFrameBuffer(long firstSequence) {
+		this.nextSequence = firstSequence;
+	}
+
+	/**
+	 * @return Always 1, only the newest frame is kept
+	 */
+	public int getCapacity() {
+		return 1;
+	}
+
+	public int size() {
+		return isEmpty() ? 0 : 1;
+	}
+
+	public boolean isEmpty() {
+		return (shared.get() & FRESH) == 0;
+	}
+
+	public boolean isFull() {
+		return !isEmpty();
+	}
+
+	public long getNextSequence() {
+		return nextSequence;
+	}
+
+	public long getDroppedFrames() {
+		return dropped;
+	}
+
+	/**
+	 * @return The frame to fill.  Never null, since publishing never waits.
+	 */
+	public SimulationState claim() {
+		return frames[back];
+	}
+
+	public boolean publish(SimulationState frame) {
+		if(frames[back] != frame)
+			return false;
+		frame.publish(nextSequence);
+		nextSequence = nextSequence + 1;
+		int previous = shared.getAndSet(back | FRESH);
+		back = previous & INDEX;
+		if((previous & FRESH) != 0)
+			dropped = dropped + 1;
+		return true;
+	}
+
+	/**
+	 * @return The newest published frame if it has not been polled yet, otherwise null
+	 */
+	public StateView poll() {
+		while(true) {
+			int current = shared.get();
+			if((current & FRESH) == 0)
+				return null;
+			//only fails if the producer published a newer frame in between
+			if(shared.compareAndSet(current, front)) {
+				front = current & INDEX;
+				return frames[front];
+			}
+		}
+	}
+
+	/**
+	 * The consumer keeps its frame until the next poll, so releasing only
+	 * checks it is that frame.
+	 */
+	public boolean release(StateView frame) {
+		return frames[front] == frame;
+	}
+}
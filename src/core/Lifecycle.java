@@ -0,0 +1,104 @@
+package core;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Run state shared by the simulation and presentation of one run.
+ *
+ * While running, checking the state costs a single volatile read.  Threads
+ * that check it while paused are registered and parked until it changes, so
+ * resume and cancel wake them immediately.  Once cancelled it stays cancelled.
+ */
+public class Lifecycle {
+
+	//run whose handoff waiters are woken on every change
+	private final Config context;
+	
+	private final AtomicReference<LifecycleEnum> state =
+			new AtomicReference<LifecycleEnum>(LifecycleEnum.RUNNING);
+	
+	//threads parked in awaitRunning
+	private final Queue<Thread> parked = new ConcurrentLinkedQueue<Thread>();
+
+	/**
+	 * @param context Configuration of the run the lifecycle belongs to
+	 */
+	public Lifecycle(Config context) {
+		this.context = context;
+	}
+
+	public LifecycleEnum getState() {
+		return state.get();
+	}
+
+	public boolean isCancelled() {
+		return state.get() == LifecycleEnum.CANCELLED;
+	}
+
+	/**
+	 * Returns immediately while running, otherwise parks the calling thread
+	 * until resumed or cancelled.  The thread's interrupt status is left set.
+	 * @return true to keep running, false once cancelled or if the thread was
+	 * interrupted while paused
+	 */
+	public boolean awaitRunning() {
+		LifecycleEnum current = state.get();
+		if(current == LifecycleEnum.RUNNING)
+			return true;
+		if(current == LifecycleEnum.CANCELLED)
+			return false;
+
+		Thread thread = Thread.currentThread();
+		parked.add(thread);
+		try {
+			//registered before checking again, so a resume in between still unparks us
+			while(state.get() == LifecycleEnum.PAUSED) {
+				//park returns straight away while interrupted, so waiting on would spin
+				if(thread.isInterrupted())
+					return false;
+				LockSupport.park(this);
+			}
+		}
+		finally {
+			parked.remove(thread);
+		}
+		return state.get() == LifecycleEnum.RUNNING;
+	}
+
+	/**
+	 * Pauses at the next check.  Ignored unless running.
+	 */
+	public void pause() {
+		if(state.compareAndSet(LifecycleEnum.RUNNING, LifecycleEnum.PAUSED))
+			wakeAll();
+	}
+
+	/**
+	 * Releases any paused threads.  Ignored unless paused.
+	 */
+	public void resume() {
+		if(state.compareAndSet(LifecycleEnum.PAUSED, LifecycleEnum.RUNNING))
+			wakeAll();
+	}
+
+	/**
+	 * Stops at the next check and releases any paused threads.
+	 */
+	public void cancel() {
+		if(state.getAndSet(LifecycleEnum.CANCELLED) != LifecycleEnum.CANCELLED)
+			wakeAll();
+	}
+
+	/*
+	 * Unparks threads paused here and wakes those waiting on the buffer
+	 * handoff, so both see the new state.
+	 */
+	private void wakeAll() {
+		for(Thread thread : parked)
+			LockSupport.unpark(thread);
+		context.signalHandoff();
+	}
+}
@@ -0,0 +1,7 @@
+package core;
+
+public enum LifecycleEnum {
+	RUNNING,
+	PAUSED,
+	CANCELLED,
+}
@@ -0,0 +1,220 @@
+package core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps cell temperatures to packed RGB colors through a table built once,
+ * indexed by the floor of the temperature in Celsius.  Looking up a color
+ * allocates nothing.
+ *
+ * Temperatures below the table get its first color.  Above the table they
+ * get its last color, unless the palette repeats its last entries, as the
+ * standard palette does above 92 C.
+ *
+ * Alternative palettes are read from text files with one stop per line,
+ * "celsius red green blue", in ascending order of temperature.  Colors
+ * between two stops are interpolated linearly.  Blank lines and lines
+ * starting with # are ignored.
+ */
+public final class Palette {
+
+	private static final Palette STANDARD = createStandard();
+
+	//color of each whole degree Celsius from minCelsius up
+	private final int[] colors;
+	private final int minCelsius;
+	//number of entries at the top of the table repeated above it, 0 to clamp
+	private final int period;
+
+	private Palette(int[] colors, int minCelsius, int period) {
+		this.colors = colors;
+		this.minCelsius = minCelsius;
+		this.period = period;
+	}
+
+	/**
+	 * @return The palette the presentation has always used
+	 */
+	public static Palette standard() {
+		return STANDARD;
+	}
+
+	/**
+	 * Temperatures with the same index have the same color, so comparing
+	 * indices is enough to tell whether a cell's color changed.
+	 * @param temperature Temperature in Kelvin
+	 * @return Index of the temperature's color, between 0 and size() - 1
+	 */
+	public int indexOf(double temperature) {
+		int celsius = (int) Math.floor(temperature - 273.15);
+		int maxCelsius = minCelsius + colors.length - 1;
+		if(celsius <= minCelsius)
+			return 0;
+		if(celsius > maxCelsius) {
+			if(period == 0)
+				return colors.length - 1;
+			int repeatStart = maxCelsius - period + 1;
+			celsius = repeatStart + (celsius - repeatStart) % period;
+		}
+		return celsius - minCelsius;
+	}
+
+	/**
+	 * @return Opaque packed RGB color at an index returned by indexOf
+	 */
+	public int colorAt(int index) {
+		return colors[index];
+	}
+
+	/**
+	 * @return Number of colors in the palette's table
+	 */
+	public int size() {
+		return colors.length;
+	}
+
+	/**
+	 * Reads a palette of color stops.
+	 * @throws IllegalArgumentException If the file has no stops, or a stop is malformed or out of order
+	 */
+	public static Palette load(File file) throws IOException {
+		List<int[]> stops = new ArrayList<int[]>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line;
+			int lineNumber = 0;
+			while((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if(line.length() == 0 || line.startsWith("#"))
+					continue;
+
+				String[] fields = line.split("\\s+");
+				if(fields.length != 4)
+					throw new IllegalArgumentException(file + ":" + lineNumber + ": expected celsius red green blue");
+				int[] stop = new int[4];
+				try {
+					for(int i = 0; i < 4; i++)
+						stop[i] = Integer.parseInt(fields[i]);
+				}
+				catch(NumberFormatException ex) {
+					throw new IllegalArgumentException(file + ":" + lineNumber + ": expected whole numbers", ex);
+				}
+				for(int i = 1; i < 4; i++) {
+					if(stop[i] < 0 || stop[i] > 255)
+						throw new IllegalArgumentException(file + ":" + lineNumber + ": color components must be between 0 and 255");
+				}
+				if(!stops.isEmpty() && stop[0] <= stops.get(stops.size() - 1)[0])
+					throw new IllegalArgumentException(file + ":" + lineNumber + ": stops must be in ascending order of temperature");
+				stops.add(stop);
+			}
+		}
+		finally {
+			reader.close();
+		}
+
+		if(stops.isEmpty())
+			throw new IllegalArgumentException(file + ": no color stops");
+
+		int minCelsius = stops.get(0)[0];
+		int[] colors = new int[stops.get(stops.size() - 1)[0] - minCelsius + 1];
+		colors[0] = rgb(stops.get(0)[1], stops.get(0)[2], stops.get(0)[3]);
+		for(int s = 1; s < stops.size(); s++) {
+			int[] low = stops.get(s - 1);
+			int[] high = stops.get(s);
+			int span = high[0] - low[0];
+			for(int celsius = low[0] + 1; celsius <= high[0]; celsius++) {
+				double fraction = (celsius - low[0]) / (double) span;
+				colors[celsius - minCelsius] = rgb(
+						(int) Math.round(low[1] + (high[1] - low[1]) * fraction),
+						(int) Math.round(low[2] + (high[2] - low[2]) * fraction),
+						(int) Math.round(low[3] + (high[3] - low[3]) * fraction));
+			}
+		}
+		return new Palette(colors, minCelsius, 0);
+	}
+
+	/*
+	 * The color scale from the sample in the assignment page.  Above 92 C the
+	 * green component cycles every 23 degrees, so the table runs to 114 C and
+	 * repeats its last 23 entries.
+	 */
+	private static Palette createStandard() {
+		int minCelsius = -100;
+		int maxCelsius = 114;
+		int[] colors = new int[maxCelsius - minCelsius + 1];
+		for(int temp = minCelsius; temp <= maxCelsius; temp++)
+			colors[temp - minCelsius] = standardColor(temp);
+		return new Palette(colors, minCelsius, 23);
+	}
+
+	private static int standardColor(int temp) {
+		int red, blue, green;
+
+		if (temp <= -100) {
+			blue = 255;
+			green = 0;
+			red = 0;
+		}
+		else if (temp <= -46) {
+			temp = -1 * temp;
+			blue = 255;
+			green = 145 - (temp * 10) % 115;
+			red = 0;
+		}
+		else if (temp <= -23 && temp > -46) {
+			temp = -1 * temp;
+			blue = 255;
+			green = 145;
+			red = 145 + (temp * 5) % 115;
+		}
+		else if (temp < 0 && temp > -23) {
+			temp = -1 * temp;
+			blue = 255;
+			green = 145;
+			red = 145 - (temp * 5);
+		}
+		else if (temp == 0) {
+			blue = 225;
+			green = 145;
+			red = 145;
+		}
+		else if (temp > 0 && temp < 23) {
+			blue = 255;
+			green = 145 + (temp * 5);
+			red = 145;
+		}
+		else if (temp >= 23 && temp < 46) {
+			blue = 255 - (temp * 5) % 115;
+			green = 255;
+			red = 145;
+		}
+		else if (temp >= 46 && temp < 69) {
+			blue = 100;
+			green = 255;
+			red = 145 + (temp * 5) % 115;
+		}
+		else if (temp >= 69 && temp < 92) {
+			blue = 50;
+			green = 255 - (temp * 5) % 115;
+			red = 255;
+		}
+		else {
+			blue = 0;
+			green = 145 - (temp * 10) % 115;
+			red = 255;
+		}
+
+		return rgb(red, green, blue);
+	}
+
+	private static int rgb(int red, int green, int blue) {
+		return 0xff000000 | red << 16 | green << 8 | blue;
+	}
+}
@@ -0,0 +1,6 @@
+package core;
+
+public enum PrecisionEnum {
+	DOUBLE,
+	FLOAT
+}
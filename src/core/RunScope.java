@@ -0,0 +1,192 @@
+package core;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns every thread started for one run: the simulation and presentation
+ * components forked into it and the workers that process the bands of each
+ * step.  Nothing it starts outlives close, which cancels the run's lifecycle
+ * and joins them all.  If a component fails the lifecycle is cancelled so the
+ * other one stops too, and the failure is kept for the caller.
+ *
+ * Threads are virtual when requested and the JVM supports them (Java 21 and
+ * later), otherwise daemon platform threads.  Virtual threads are looked up
+ * reflectively so the code still builds and runs on older JVMs.
+ */
+public class RunScope {
+
+	//Thread factory for virtual threads, or null if the JVM has none
+	private static final ThreadFactory sVirtualFactory = loadVirtualFactory();
+
+	private static ThreadFactory loadVirtualFactory() {
+		try {
+			Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			Object builder = ofVirtual.invoke(null);
+			Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+			return (ThreadFactory) factory.invoke(builder);
+		}
+		catch(Exception ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return true if the JVM can create virtual threads
+	 */
+	public static boolean isVirtualAvailable() {
+		return sVirtualFactory != null;
+	}
+
+	private final Lifecycle lifecycle;
+	private final ThreadFactory factory;
+	private final boolean virtual;
+
+	private final List<Thread> threads = new ArrayList<Thread>();
+	private final List<ExecutorService> executors = new ArrayList<ExecutorService>();
+	private volatile Throwable failure;
+	private boolean closed;
+
+	/**
+	 * @param virtual Use virtual threads if the JVM supports them
+	 * @param lifecycle Lifecycle of the run, cancelled when the scope closes or a component fails
+	 */
+	public RunScope(boolean virtual, Lifecycle lifecycle) {
+		this.lifecycle = lifecycle;
+		this.virtual = virtual && sVirtualFactory != null;
+		if(this.virtual)
+			this.factory = sVirtualFactory;
+		else {
+			this.factory = new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "run-worker-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			};
+		}
+	}
+
+	/**
+	 * @return true if this scope's threads are virtual
+	 */
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	public Lifecycle getLifecycle() {
+		return lifecycle;
+	}
+
+	/**
+	 * @return The first exception thrown by a forked component, or null
+	 */
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Starts a component on its own thread in this scope.
+	 * @param name Name of the thread
+	 */
+	public synchronized void fork(String name, final Runnable component) {
+		if(closed)
+			throw new IllegalStateException("Cannot fork into a closed scope");
+
+		Thread thread = factory.newThread(new Runnable() {
+			public void run() {
+				try {
+					component.run();
+				}
+				catch(Throwable ex) {
+					//failures caused by closing the scope are expected
+					if(!lifecycle.isCancelled() && failure == null)
+						failure = ex;
+					lifecycle.cancel();
+				}
+			}
+		});
+		thread.setName(name);
+		threads.add(thread);
+		thread.start();
+	}
+
+	/**
+	 * Creates an executor whose threads belong to this scope, for the band
+	 * workers of a step engine.  It is shut down when the scope closes.
+	 * @param parallelism Number of tasks run at once
+	 */
+	public synchronized ExecutorService newExecutor(int parallelism) {
+		if(closed)
+			throw new IllegalStateException("Cannot create an executor in a closed scope");
+
+		//virtual threads are cheap, so each task gets a fresh or idle one
+		ExecutorService executor = virtual
+				? Executors.newCachedThreadPool(factory)
+				: Executors.newFixedThreadPool(parallelism, factory);
+		executors.add(executor);
+		return executor;
+	}
+
+	/**
+	 * Cancels the lifecycle and waits for every thread in the scope to finish.
+	 * Threads still running after the timeout are interrupted and given the
+	 * same time again.
+	 * @return true if every thread finished
+	 */
+	public boolean close(long timeoutMillis) {
+		List<Thread> forked;
+		List<ExecutorService> workers;
+		synchronized(this) {
+			closed = true;
+			forked = new ArrayList<Thread>(threads);
+			workers = new ArrayList<ExecutorService>(executors);
+		}
+
+		lifecycle.cancel();
+		try {
+			if(joinAll(forked, workers, timeoutMillis))
+				return true;
+
+			for(Thread thread : forked)
+				thread.interrupt();
+			for(ExecutorService executor : workers)
+				executor.shutdownNow();
+			return joinAll(forked, workers, timeoutMillis);
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static boolean joinAll(List<Thread> forked, List<ExecutorService> workers, long timeoutMillis)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		for(Thread thread : forked)
+			thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+		//components have stopped submitting, so the workers only have to go idle
+		for(ExecutorService executor : workers) {
+			executor.shutdown();
+			executor.awaitTermination(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+		}
+
+		for(Thread thread : forked) {
+			if(thread.isAlive())
+				return false;
+		}
+		for(ExecutorService executor : workers) {
+			if(!executor.isTerminated())
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,120 @@
+package core;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Settings chosen on the command line.  Immutable, so it can be read from any
+ * thread without locking.
+ */
+public final class Settings {
+
+	private final int bufferSize;
+	private final BufferPolicyEnum bufferPolicy;
+	private final Set<ThreadedEnum> threadingFlags;
+	private final InitiativeEnum initiative;
+	private final int parallelism;
+	private final KernelEnum kernel;
+	private final PrecisionEnum precision;
+	private final boolean headless;
+	private final double spacing;
+	private final int timestep;
+	private final int steps;
+	//publish every N steps, or every N simulated minutes when publishInMinutes is set
+	private final int publishEvery;
+	private final boolean publishInMinutes;
+	private final boolean virtualThreads;
+	private final Palette palette;
+
+	/**
+	 * Zero and null values are replaced with their defaults.
+	 */
+	public Settings(int bufferSize, BufferPolicyEnum bufferPolicy, EnumSet<ThreadedEnum> threading, InitiativeEnum initiative,
+			int parallelism, KernelEnum kernel, PrecisionEnum precision, boolean headless, double spacing, int timestep, int steps,
+			int publishEvery, boolean publishInMinutes, boolean virtualThreads, Palette palette) {
+		this.bufferSize = bufferSize == 0 ? 1 : bufferSize;
+		this.bufferPolicy = bufferPolicy == null ? BufferPolicyEnum.QUEUE : bufferPolicy;
+		this.threadingFlags = Collections.unmodifiableSet(EnumSet.copyOf(threading));
+		this.initiative = initiative == null ? InitiativeEnum.MASTER_CONTROL : initiative;
+		this.parallelism = parallelism == 0 ? 1 : parallelism;
+		this.kernel = kernel == null ? KernelEnum.SEQUENTIAL : kernel;
+		this.precision = precision == null ? PrecisionEnum.DOUBLE : precision;
+		this.headless = headless;
+		this.spacing = spacing == 0 ? 15 : spacing;
+		this.timestep = timestep == 0 ? 1 : timestep;
+		this.steps = steps == 0 ? 1440 : steps;
+		this.publishEvery = publishEvery == 0 ? 1 : publishEvery;
+		this.publishInMinutes = publishInMinutes;
+		this.virtualThreads = virtualThreads;
+		this.palette = palette == null ? Palette.standard() : palette;
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public BufferPolicyEnum getBufferPolicy() {
+		return bufferPolicy;
+	}
+
+	public Set<ThreadedEnum> getThreadingFlags() {
+		return threadingFlags;
+	}
+
+	public InitiativeEnum getInitiative() {
+		return initiative;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public KernelEnum getKernel() {
+		return kernel;
+	}
+
+	public PrecisionEnum getPrecision() {
+		return precision;
+	}
+
+	public boolean isHeadless() {
+		return headless;
+	}
+
+	public double getSpacing() {
+		return spacing;
+	}
+
+	public int getTimestep() {
+		return timestep;
+	}
+
+	public int getStepCount() {
+		return steps;
+	}
+
+	/**
+	 * @return true to run components and band workers on virtual threads where available
+	 */
+	public boolean useVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * @return Colors the presentation draws temperatures with
+	 */
+	public Palette getPalette() {
+		return palette;
+	}
+
+	/**
+	 * @param timestep Simulated minutes per step of the simulation being run
+	 * @return Number of steps to simulate for each state published, at least 1
+	 */
+	public int getStepsPerPublish(int timestep) {
+		if(!publishInMinutes)
+			return publishEvery;
+		return Math.max(1, (publishEvery + timestep - 1) / timestep);
+	}
+}
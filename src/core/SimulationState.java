@@ -1,21 +1,104 @@
 package core;
 
+import java.lang.invoke.VarHandle;
 
-public class SimulationState {
+/*
+ * One published step of the simulation.  Frames are made by the
+ * FrameRing and reused, so a frame must not be read after it is released.
+ * Only the producer writes a frame; the consumer sees it as a StateView.
+ */
+public class SimulationState implements StateView {
 
-	private DataCell[][] cells;
+	/* Cell temperatures laid out as y * width + x. */
+	private double[] temperatures;
+	private int width;
+	private int height;
 	private double sunLongitude;
+	/* System.nanoTime() when the state was produced. */
+	private long createdNanos;
+	/* Position among published states, 0 until published. */
+	private long sequence;
+	/* Incremented when the producer starts writing the frame and again
+	 * when it is published, so it is odd while being written. */
+	private volatile long generation;
 	
-	public SimulationState(DataCell[][] cells, double sunLong) {
-		this.cells = cells;
+	/* Empty frame, filled later through reuse. */
+	public SimulationState() {
+		this.temperatures = new double[0];
+	}
+	
+	/*
+	 * Prepare the frame to hold a new step.  The temperature array is only
+	 * reallocated when the grid size changes.
+	 * @return Array of width * height cells to copy the temperatures into
+	 */
+	public double[] reuse(int width, int height, double sunLong) {
+		generation++;
+		/* Keep the writes below from becoming visible before the odd
+		 * generation, as a volatile store alone would allow. */
+		VarHandle.storeStoreFence();
+		if(temperatures.length != width * height)
+			temperatures = new double[width * height];
+		this.width = width;
+		this.height = height;
 		this.sunLongitude = sunLong;
+		this.createdNanos = System.nanoTime();
+		return temperatures;
+	}
+
+	/*
+	 * Free the temperatures of a frame the FrameRing no longer uses.
+	 */
+	void discard() {
+		temperatures = new double[0];
+		width = 0;
+		height = 0;
+	}
+
+	/*
+	 * Mark the frame as completely written.  Called by the FrameRing
+	 * when the frame is published.
+	 */
+	void publish(long sequence) {
+		this.sequence = sequence;
+		generation++;
+	}
+
+	public double getTemperature(int x, int y) {
+		return temperatures[y * width + x];
+	}
+
+	public int getWidth() {
+		return width;
 	}
 
-	public DataCell[][] getCells() {
-		return cells;
+	public int getHeight() {
+		return height;
 	}
 
 	public double getSunLongitude() {
 		return sunLongitude;
 	}
+
+	public long getCreatedNanos() {
+		return createdNanos;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public long getGeneration() {
+		return generation;
+	}
+
+	/*
+	 * The reads of the frame being validated are plain reads, which may be
+	 * reordered after a volatile read, so they are fenced before the
+	 * generation is read again, as StampedLock.validate does.
+	 */
+	public boolean isUnchanged(long generation) {
+		VarHandle.acquireFence();
+		return (generation & 1) == 0 && this.generation == generation;
+	}
 }
@@ -0,0 +1,41 @@
+package core;
+
+/**
+ * Read-only view of a published SimulationState, as seen by the presentation.
+ *
+ * The frame behind a view is reused once it is released, so the view must
+ * not be read after that.  A consumer can take the generation before reading
+ * and check isUnchanged afterwards to detect a frame that was rewritten
+ * while it was being read.
+ */
+public interface StateView {
+
+	double getTemperature(int x, int y);
+
+	int getWidth();
+
+	int getHeight();
+
+	double getSunLongitude();
+
+	/**
+	 * @return System.nanoTime() when the state was produced
+	 */
+	long getCreatedNanos();
+
+	/**
+	 * @return Position of the state among published states, starting at 1
+	 */
+	long getSequence();
+
+	/**
+	 * @return Write count of the frame, odd while the producer is writing it
+	 */
+	long getGeneration();
+
+	/**
+	 * @param generation Value of getGeneration taken before reading
+	 * @return true if the frame was complete then and has not been written since
+	 */
+	boolean isUnchanged(long generation);
+}